@@ -0,0 +1,64 @@
+import java.io.*;
+
+/**
+ * purpose: reads streams written by AdaptiveHuffmanWriter
+ * Decodes one block at a time, switching to each block's inline code as it arrives
+ *
+ * 17 oct. 26
+ */
+
+public class AdaptiveHuffmanReader extends Reader {
+    private final DataInputStream input;
+    private HuffmanDecoder decoder = null;
+    private char[] block = new char[0];
+    private int position = 0, length = 0;   // Unread characters are block[position, length)
+    private boolean ended = false;
+
+    public AdaptiveHuffmanReader(InputStream input) {
+        this.input = new DataInputStream(new BufferedInputStream(input));
+    }
+
+    public int read(char[] chars, int offset, int count) throws IOException {
+        if (count == 0) return 0;
+        while (position == length) {
+            if (ended || !readBlock()) return -1;
+        }
+        int n = Math.min(count, length - position);
+        System.arraycopy(block, position, chars, offset, n);
+        position += n;
+        return n;
+    }
+
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Helper method for read — decodes the next block
+     *
+     * @return false at the end of the stream
+     */
+    private boolean readBlock() throws IOException {
+        int flag = input.read();
+        if (flag == -1 || flag == AdaptiveHuffmanWriter.END) {
+            ended = true;
+            return false;
+        }
+        if (flag == AdaptiveHuffmanWriter.NEW_TABLE) {
+            decoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(CanonicalHuffman.readHeader(input, HuffmanCodeTable.CHAR_SYMBOLS)));
+        } else if (flag != AdaptiveHuffmanWriter.SAME_TABLE || decoder == null) {
+            throw new IOException("Bad block flag " + flag);
+        }
+
+        int chars = input.readInt();
+        byte[] payload = new byte[input.readInt()];
+        input.readFully(payload);
+        if (block.length < chars) block = new char[chars];
+
+        FastBitReader bitInput = new FastBitReader(new ByteArrayInputStream(payload), 8L * payload.length);
+        if (decoder.decode(bitInput, block, 0, chars) != chars) throw new EOFException("Block is too short");
+        position = 0;
+        length = chars;
+        return true;
+    }
+}
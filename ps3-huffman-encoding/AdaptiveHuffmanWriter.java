@@ -0,0 +1,120 @@
+import java.io.*;
+
+/**
+ * purpose: single-pass adaptive huffman compression for never-ending streams
+ * Characters are buffered into blocks; each block's code is rebuilt from that block's own frequencies
+ * and written inline ahead of the block (or the previous block's code is reused when that's smaller),
+ * so no separate counting pass over the input is needed. Read back with AdaptiveHuffmanReader.
+ *
+ * Block layout: flag byte (NEW_TABLE, SAME_TABLE, or END), canonical header if NEW_TABLE,
+ * character count (4 bytes), payload byte count (4 bytes), payload bits
+ *
+ * 17 oct. 26
+ */
+
+public class AdaptiveHuffmanWriter extends Writer {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;  // Characters per block
+    static final int END = 0, NEW_TABLE = 1, SAME_TABLE = 2;
+
+    private final DataOutputStream output;
+    private final char[] block;
+    private int buffered = 0;
+    private final long[] counts = new long[HuffmanCodeTable.CHAR_SYMBOLS];
+    private ArrayHuffmanBuilder builder = new ArrayHuffmanBuilder(HuffmanCodeTable.CHAR_SYMBOLS);
+    private ArrayHuffmanBuilder previousBuilder = new ArrayHuffmanBuilder(HuffmanCodeTable.CHAR_SYMBOLS);
+    private HuffmanCodeTable previousTable = null;
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    private final FastBitWriter bitOutput = new FastBitWriter(payload, false);
+    private boolean closed = false;
+
+    public AdaptiveHuffmanWriter(OutputStream output) {
+        this(output, DEFAULT_BLOCK_SIZE);
+    }
+
+    public AdaptiveHuffmanWriter(OutputStream output, int blockSize) {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive");
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+        this.block = new char[blockSize];
+    }
+
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (closed) throw new IOException("Stream closed");
+        while (length > 0) {
+            int n = Math.min(length, block.length - buffered);
+            System.arraycopy(chars, offset, block, buffered, n);
+            buffered += n;
+            offset += n;
+            length -= n;
+            if (buffered == block.length) writeBlock();
+        }
+    }
+
+    /**
+     * Ends the current block early & pushes everything written so far downstream
+     */
+    public void flush() throws IOException {
+        if (closed) return;
+        writeBlock();
+        output.flush();
+    }
+
+    public void close() throws IOException {
+        if (closed) return;
+        writeBlock();
+        output.writeByte(END);
+        output.close();
+        closed = true;
+    }
+
+    /**
+     * Helper method — encodes the buffered characters as one block
+     */
+    private void writeBlock() throws IOException {
+        if (buffered == 0) return;
+
+        // Frequencies of this block only, code rebuilt in the builder's reused arrays
+        for (int i = 0; i < buffered; i++) counts[block[i]]++;
+        builder.build(counts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        int[] used = builder.getSymbols();
+        int usedCount = builder.getSymbolCount();
+        byte[] lengths = builder.getLengths();
+
+        // Reuses the previous code if it covers the block & costs less than a new code plus its header
+        long newBits = 8L * (6 + 3 * usedCount);
+        long previousBits = (previousTable == null) ? Long.MAX_VALUE : 0;
+        byte[] previousLengths = previousBuilder.getLengths();
+        for (int i = 0; i < usedCount; i++) {
+            int c = used[i];
+            newBits += counts[c] * lengths[c];
+            if (previousBits != Long.MAX_VALUE) {
+                previousBits = (previousLengths[c] == 0) ? Long.MAX_VALUE : previousBits + counts[c] * previousLengths[c];
+            }
+        }
+        for (int i = 0; i < usedCount; i++) counts[used[i]] = 0;
+
+        HuffmanCodeTable codeTable;
+        if (previousBits <= newBits) {
+            output.writeByte(SAME_TABLE);
+            codeTable = previousTable;
+        } else {
+            output.writeByte(NEW_TABLE);
+            CanonicalHuffman.writeHeader(lengths, output);
+            codeTable = builder.getCodeTable();
+            previousTable = codeTable;
+
+            // This block's builder now holds the previous code; the other one is free for the next block
+            ArrayHuffmanBuilder free = previousBuilder;
+            previousBuilder = builder;
+            builder = free;
+        }
+
+        // Payload is encoded in memory first so its size can go ahead of it
+        payload.reset();
+        codeTable.encode(block, 0, buffered, bitOutput);
+        bitOutput.finish();
+        output.writeInt(buffered);
+        output.writeInt(payload.size());
+        payload.writeTo(output);
+        buffered = 0;
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * purpose: huffman compression over a selectable alphabet
+ * BYTES: the raw bytes of the file (256 symbols), charset-agnostic & fastest.
+ * CODE_POINTS: full unicode code points decoded with a charset, with surrogate pairs kept together
+ * (malformed input becomes the replacement character, so use BYTES for binary files).
+ * The most frequent code points get their own symbols in a fixed-size table; the rest share one escape
+ * symbol followed by the raw 21-bit code point, so code & decoder arrays stay small for any input.
+ *
+ * File layout: magic (2 bytes), alphabet (1 byte), then for CODE_POINTS the mapped code point count (4 bytes)
+ * & each mapped code point (4 bytes), then the canonical header (see CanonicalHuffman) & payload bits with trailer
+ *
+ * 17 oct. 26
+ */
+
+public class AlphabetHuffman {
+    public enum Alphabet { BYTES, CODE_POINTS }
+
+    public static final int MAGIC = 0x4841;                     // "HA"
+    public static final int BYTE_SYMBOLS = 256;
+    public static final int CODE_POINT_SYMBOLS = 4096;          // Fixed table size in CODE_POINTS mode
+    public static final int ESCAPE = CODE_POINT_SYMBOLS - 1;    // Followed by a raw code point
+    private static final int CODE_POINT_BITS = 21;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Alphabet alphabet;
+    private final Charset charset;
+
+    public AlphabetHuffman(Alphabet alphabet) {
+        this(alphabet, Charset.defaultCharset());
+    }
+
+    /**
+     * @param alphabet
+     * @param charset used to decode & re-encode text in CODE_POINTS mode (ignored for BYTES)
+     */
+    public AlphabetHuffman(Alphabet alphabet, Charset charset) {
+        this.alphabet = alphabet;
+        this.charset = charset;
+    }
+
+    public Alphabet getAlphabet() { return alphabet; }
+
+    /**
+     * Compresses a file with this alphabet
+     *
+     * @param pathName
+     * @param compressedPathName
+     */
+    public void compressFile(String pathName, String compressedPathName) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compressedPathName)));
+        output.writeShort(MAGIC);
+        output.writeByte(alphabet.ordinal());
+        if (alphabet == Alphabet.BYTES) compressBytes(pathName, output);
+        else compressCodePoints(pathName, output);
+    }
+
+    /**
+     * Decompresses a file written by compressFile(), whichever alphabet it was written with
+     * (text in CODE_POINTS mode is written in this instance's charset)
+     *
+     * @param compressedPathName
+     * @param decompressedPathName
+     */
+    public void decompressFile(String compressedPathName, String decompressedPathName) throws IOException {
+        decompressFile(compressedPathName, decompressedPathName, charset);
+    }
+
+    /**
+     * Decompresses a file written by compressFile(); the alphabet is read from the file, so no instance is needed
+     *
+     * @param compressedPathName
+     * @param decompressedPathName
+     * @param charset text in CODE_POINTS mode is written in this charset (ignored for BYTES)
+     */
+    public static void decompressFile(String compressedPathName, String decompressedPathName, Charset charset) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(compressedPathName)));
+        if (input.readUnsignedShort() != MAGIC) throw new IOException("Not an alphabet huffman file");
+        int mode = input.readUnsignedByte();
+        if (mode == Alphabet.BYTES.ordinal()) decompressBytes(input, decompressedPathName);
+        else if (mode == Alphabet.CODE_POINTS.ordinal()) decompressCodePoints(input, decompressedPathName, charset);
+        else throw new IOException("Bad alphabet " + mode);
+    }
+
+    /**
+     * Helper method for compressFile — one symbol per byte
+     */
+    private void compressBytes(String pathName, DataOutputStream output) throws IOException {
+        ArrayHuffmanBuilder builder = new ArrayHuffmanBuilder(BYTE_SYMBOLS);
+        builder.build(FrequencyCounter.countBytes(pathName), LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        HuffmanCodeTable codeTable = builder.getCodeTable();
+        CanonicalHuffman.writeHeader(builder.getLengths(), output);
+
+        FastBitWriter bitOutput = new FastBitWriter(output);
+        InputStream input = new FileInputStream(pathName);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n = 0;  // bytes read
+        while ((n = input.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) codeTable.encode(buffer[i] & 0xFF, bitOutput);
+        }
+        input.close();
+        bitOutput.close();
+    }
+
+    /**
+     * Helper method for decompressFile — decodes bytes straight to the output file
+     */
+    private static void decompressBytes(DataInputStream input, String decompressedPathName) throws IOException {
+        HuffmanDecoder decoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(CanonicalHuffman.readHeader(input, BYTE_SYMBOLS)));
+        FastBitReader bitInput = new FastBitReader(input);
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(decompressedPathName));
+
+        char[] symbols = new char[BUFFER_SIZE];
+        byte[] bytes = new byte[BUFFER_SIZE];
+        int n = 0;  // symbols decoded
+        while ((n = decoder.decode(bitInput, symbols, 0, symbols.length)) > 0) {
+            for (int i = 0; i < n; i++) bytes[i] = (byte)symbols[i];
+            output.write(bytes, 0, n);
+        }
+        bitInput.close();
+        output.close();
+    }
+
+    /**
+     * Helper method for compressFile — mapped code points & escapes
+     */
+    private void compressCodePoints(String pathName, DataOutputStream output) throws IOException {
+
+        // Counts code points: an array for the basic multilingual plane, a map for the rest (rare)
+        long[] bmpCounts = new long[HuffmanCodeTable.CHAR_SYMBOLS];
+        Map<Integer, Long> supplementaryCounts = new HashMap<Integer, Long>();
+        CodePointReader input = new CodePointReader(new InputStreamReader(new FileInputStream(pathName), charset));
+        int codePoint;
+        while ((codePoint = input.read()) != -1) {
+            if (codePoint < bmpCounts.length) bmpCounts[codePoint]++;
+            else supplementaryCounts.merge(codePoint, 1L, Long::sum);
+        }
+        input.close();
+
+        // Keeps the most frequent code points, sorted by (count, code point), ties favoring smaller code points
+        int used = supplementaryCounts.size();
+        for (long count : bmpCounts) if (count > 0) used++;
+        long[] keys = new long[used];
+        int k = 0;
+        for (int c = 0; c < bmpCounts.length; c++) {
+            if (bmpCounts[c] > 0) keys[k++] = (bmpCounts[c] << CODE_POINT_BITS) | (Character.MAX_CODE_POINT - c);
+        }
+        for (Map.Entry<Integer, Long> entry : supplementaryCounts.entrySet()) {
+            keys[k++] = (entry.getValue() << CODE_POINT_BITS) | (Character.MAX_CODE_POINT - entry.getKey());
+        }
+        Arrays.sort(keys);
+        int mappedCount = Math.min(used, ESCAPE);
+        int[] mapped = new int[mappedCount];
+        for (int i = 0; i < mappedCount; i++) {
+            mapped[i] = Character.MAX_CODE_POINT - (int)(keys[used - 1 - i] & ((1 << CODE_POINT_BITS) - 1));
+        }
+        Arrays.sort(mapped);
+
+        // Symbol counts, including the escape's share of everything unmapped
+        long[] counts = new long[CODE_POINT_SYMBOLS];
+        char[] bmpSymbols = new char[HuffmanCodeTable.CHAR_SYMBOLS];   // Symbol + 1 per BMP code point, 0 if escaped
+        Map<Integer, Integer> supplementarySymbols = new HashMap<Integer, Integer>();
+        for (int symbol = 0; symbol < mappedCount; symbol++) {
+            int c = mapped[symbol];
+            if (c < bmpCounts.length) {
+                counts[symbol] = bmpCounts[c];
+                bmpSymbols[c] = (char)(symbol + 1);
+            } else {
+                counts[symbol] = supplementaryCounts.get(c);
+                supplementarySymbols.put(c, symbol);
+            }
+        }
+        for (int i = 0; i < used - mappedCount; i++) counts[ESCAPE] += keys[i] >>> CODE_POINT_BITS;
+
+        ArrayHuffmanBuilder builder = new ArrayHuffmanBuilder(CODE_POINT_SYMBOLS);
+        builder.build(counts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        HuffmanCodeTable codeTable = builder.getCodeTable();
+        output.writeInt(mappedCount);
+        for (int c : mapped) output.writeInt(c);
+        CanonicalHuffman.writeHeader(builder.getLengths(), output);
+
+        // Second pass encodes
+        FastBitWriter bitOutput = new FastBitWriter(output);
+        input = new CodePointReader(new InputStreamReader(new FileInputStream(pathName), charset));
+        while ((codePoint = input.read()) != -1) {
+            int symbol = (codePoint < bmpSymbols.length) ? bmpSymbols[codePoint] - 1 : supplementarySymbols.getOrDefault(codePoint, -1);
+            if (symbol >= 0) {
+                codeTable.encode(symbol, bitOutput);
+            } else {
+                codeTable.encode(ESCAPE, bitOutput);
+                bitOutput.writeBits(codePoint, CODE_POINT_BITS);
+            }
+        }
+        input.close();
+        bitOutput.close();
+    }
+
+    /**
+     * Helper method for decompressFile — maps symbols back to code points & writes them in the charset
+     */
+    private static void decompressCodePoints(DataInputStream input, String decompressedPathName, Charset charset) throws IOException {
+        int mappedCount = input.readInt();
+        if (mappedCount < 0 || mappedCount > ESCAPE) throw new IOException("Bad code point count " + mappedCount);
+        int[] mapped = new int[mappedCount];
+        for (int i = 0; i < mappedCount; i++) mapped[i] = input.readInt();
+        HuffmanDecoder decoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(CanonicalHuffman.readHeader(input, CODE_POINT_SYMBOLS)));
+        FastBitReader bitInput = new FastBitReader(input);
+        Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(decompressedPathName), charset));
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int length = 0;
+        int symbol;
+        while ((symbol = decoder.decodeSymbol(bitInput)) >= 0) {
+            int codePoint;
+            if (symbol == ESCAPE) codePoint = bitInput.readBits(CODE_POINT_BITS);
+            else if (symbol < mappedCount) codePoint = mapped[symbol];
+            else throw new IOException("Bad symbol " + symbol);
+
+            // Room for a surrogate pair
+            if (length + 2 > buffer.length) {
+                output.write(buffer, 0, length);
+                length = 0;
+            }
+            length += Character.toChars(codePoint, buffer, length);
+        }
+        output.write(buffer, 0, length);
+        bitInput.close();
+        output.close();
+    }
+
+    /**
+     * Reads code points from a character stream, keeping surrogate pairs together even across buffer
+     * boundaries; an unpaired surrogate comes back as its own value so the round trip stays lossless
+     */
+    private static class CodePointReader {
+        private final Reader input;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int position = 0, length = 0;
+
+        CodePointReader(Reader input) {
+            this.input = input;
+        }
+
+        /**
+         * @return next code point, or -1 at the end
+         */
+        int read() throws IOException {
+            if (position == length && !fill()) return -1;
+            char c = buffer[position++];
+            if (Character.isHighSurrogate(c)) {
+                if (position == length && !fill()) return c;
+                if (Character.isLowSurrogate(buffer[position])) return Character.toCodePoint(c, buffer[position++]);
+            }
+            return c;
+        }
+
+        private boolean fill() throws IOException {
+            int n;
+            do {
+                n = input.read(buffer);
+            } while (n == 0);
+            position = 0;
+            length = Math.max(n, 0);
+            return n > 0;
+        }
+
+        void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * purpose: allocation-free huffman code construction
+ * Sorts the used symbols by frequency once, then builds the tree with the linear two-queue merge
+ * (leaves in one queue, merged nodes in another, both already in frequency order) over parallel
+ * primitive arrays. Code lengths & canonical codes are assigned from those arrays, with no
+ * BinaryTree/CodeTreeElement nodes, PriorityQueue or Strings.
+ *
+ * All arrays are allocated once & reused, so one builder can rebuild codes for block after block.
+ * Results stay valid until the next call to build().
+ *
+ * 17 oct. 26
+ */
+
+public class ArrayHuffmanBuilder {
+    private static final int SYMBOL_BITS = 17;          // Sort keys are (frequency << SYMBOL_BITS) | symbol
+    private static final long MAX_KEY_FREQUENCY = 1L << (63 - SYMBOL_BITS);
+
+    private final long[] keys;      // Sort keys, then (length << SYMBOL_BITS) | symbol for canonical order
+    private final long[] weights;   // Node weights: leaves [0, n) in frequency order, merged nodes [n, 2n - 1)
+    private final int[] parents;    // Parent of each node
+    private final int[] depths;     // Depth of each node
+    private final byte[] lengths;   // Code length per symbol
+    private final int[] codes;      // Canonical code per symbol
+    private final int[] symbols;    // Used symbols in canonical (length, symbol) order
+    private int symbolCount = 0;
+    private int maxCodeLength = 0;
+
+    public ArrayHuffmanBuilder(int numSymbols) {
+        if (numSymbols > (1 << SYMBOL_BITS)) throw new IllegalArgumentException("At most " + (1 << SYMBOL_BITS) + " symbols");
+        keys = new long[numSymbols];
+        weights = new long[2 * numSymbols];
+        parents = new int[2 * numSymbols];
+        depths = new int[2 * numSymbols];
+        lengths = new byte[numSymbols];
+        codes = new int[numSymbols];
+        symbols = new int[numSymbols];
+    }
+
+    /**
+     * Builds code lengths & canonical codes for the symbols with non-zero counts
+     *
+     * @param counts frequency per symbol (same size as the builder's alphabet)
+     * @param maxLength longest code allowed; falls back to package-merge in the rare case the tree is deeper
+     */
+    public void build(long[] counts, int maxLength) {
+
+        // Clears only the entries set by the previous build
+        for (int i = 0; i < symbolCount; i++) {
+            lengths[symbols[i]] = 0;
+            codes[symbols[i]] = 0;
+        }
+
+        // Used symbols & largest count
+        int n = 0;
+        long largest = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++) {
+            if (counts[symbol] > 0) {
+                symbols[n++] = symbol;
+                largest = Math.max(largest, counts[symbol]);
+            }
+        }
+        symbolCount = n;
+        maxCodeLength = 0;
+
+        // Safety check: boundary cases of 0 & 1 symbols (a single symbol gets the code "0", as in computeCodes())
+        if (n == 0) return;
+        if (n == 1) {
+            lengths[symbols[0]] = 1;
+            maxCodeLength = 1;
+            return;
+        }
+
+        // Sorts leaves by frequency (huge counts are scaled down to fit the sort key)
+        int shift = 0;
+        while ((largest >>> shift) >= MAX_KEY_FREQUENCY) shift++;
+        for (int i = 0; i < n; i++) {
+            long frequency = Math.max(1, counts[symbols[i]] >>> shift);
+            keys[i] = (frequency << SYMBOL_BITS) | symbols[i];
+        }
+        Arrays.sort(keys, 0, n);
+        for (int i = 0; i < n; i++) weights[i] = keys[i] >>> SYMBOL_BITS;
+
+        // Two-queue merge: merged nodes come out in increasing weight, so the smallest node is always at one of the two fronts
+        int leaf = 0, merged = n;
+        for (int next = n; next < 2 * n - 1; next++) {
+            int a = (leaf < n && (merged == next || weights[leaf] <= weights[merged])) ? leaf++ : merged++;
+            int b = (leaf < n && (merged == next || weights[leaf] <= weights[merged])) ? leaf++ : merged++;
+            weights[next] = weights[a] + weights[b];
+            parents[a] = next;
+            parents[b] = next;
+        }
+
+        // Parents always come after their children, so one pass from the root down sets every depth
+        int root = 2 * n - 2;
+        depths[root] = 0;
+        for (int node = root - 1; node >= 0; node--) depths[node] = depths[parents[node]] + 1;
+        for (int i = 0; i < n; i++) {
+            int symbol = (int)(keys[i] & ((1 << SYMBOL_BITS) - 1));
+            lengths[symbol] = (byte)Math.min(depths[i], 127);
+            maxCodeLength = Math.max(maxCodeLength, depths[i]);
+        }
+
+        // Rare: tree is deeper than allowed
+        if (maxCodeLength > maxLength) {
+            byte[] limited = LengthLimitedHuffman.codeLengths(counts, maxLength);
+            maxCodeLength = 0;
+            for (int i = 0; i < n; i++) {
+                lengths[symbols[i]] = limited[symbols[i]];
+                maxCodeLength = Math.max(maxCodeLength, limited[symbols[i]]);
+            }
+        }
+        assignCanonicalCodes();
+    }
+
+    /**
+     * Helper method for build — canonical codes in (length, symbol) order, same codes as CanonicalHuffman.canonicalTable()
+     */
+    private void assignCanonicalCodes() {
+        int n = symbolCount;
+        for (int i = 0; i < n; i++) keys[i] = ((long)lengths[symbols[i]] << SYMBOL_BITS) | symbols[i];
+        Arrays.sort(keys, 0, n);
+
+        int code = 0;
+        int previousLength = (int)(keys[0] >>> SYMBOL_BITS);
+        for (int i = 0; i < n; i++) {
+            int length = (int)(keys[i] >>> SYMBOL_BITS);
+            int symbol = (int)(keys[i] & ((1 << SYMBOL_BITS) - 1));
+            code <<= (length - previousLength);
+            codes[symbol] = code++;
+            symbols[i] = symbol;
+            previousLength = length;
+        }
+    }
+
+    /** Code length per symbol, 0 for unused symbols */
+    public byte[] getLengths() { return lengths; }
+
+    /** Canonical code per symbol */
+    public int[] getCodes() { return codes; }
+
+    /** Used symbols in canonical order; only the first getSymbolCount() entries are valid */
+    public int[] getSymbols() { return symbols; }
+
+    public int getSymbolCount() { return symbolCount; }
+
+    public int getMaxCodeLength() { return maxCodeLength; }
+
+    /**
+     * Code table over the builder's arrays (no copy, so only valid until the next build)
+     */
+    public HuffmanCodeTable getCodeTable() {
+        return new HuffmanCodeTable(codes, lengths, maxCodeLength);
+    }
+
+    /**
+     * Helper method for main — one self-test case, checked with LengthLimitedHuffman's self-test helpers
+     *
+     * @param exact whether the cost must match huffman's when the limit isn't binding (not for counts scaled down to fit the sort key)
+     */
+    private static void check(ArrayHuffmanBuilder builder, String name, long[] counts, int maxLength, boolean exact, Random random) throws IOException {
+        builder.build(counts, maxLength);
+        byte[] lengths = Arrays.copyOf(builder.getLengths(), counts.length);
+        long cost = LengthLimitedHuffman.checkLengths(counts, lengths, maxLength);
+        long[] huffman = LengthLimitedHuffman.huffmanCostAndDepth(counts);
+        int longest = 0;
+        for (byte length : lengths) longest = Math.max(longest, length);
+        if (longest != builder.getMaxCodeLength()) throw new IllegalStateException(name + ": longest code is " + longest + ", not " + builder.getMaxCodeLength());
+        if (exact && (cost < huffman[0] || (huffman[1] <= maxLength && cost != huffman[0]))) {
+            throw new IllegalStateException(name + ": cost " + cost + " bits, huffman " + huffman[0] + " bits with longest code " + huffman[1]);
+        }
+
+        // Same codes as CanonicalHuffman gives for these lengths, & they decode back
+        if (longest <= CanonicalHuffman.MAX_CODE_LENGTH && builder.getSymbolCount() > 0) {
+            HuffmanCodeTable canonical = CanonicalHuffman.canonicalTable(lengths);
+            HuffmanCodeTable built = builder.getCodeTable();
+            for (int symbol = 0; symbol < counts.length; symbol++) {
+                if (canonical.getLength(symbol) != 0 && canonical.getCode(symbol) != built.getCode(symbol)) {
+                    throw new IllegalStateException(name + ": code for " + symbol + " isn't the canonical one");
+                }
+            }
+            LengthLimitedHuffman.checkRoundTrip(counts, lengths, random);
+        }
+        System.out.println(name + ": longest code " + longest + "/" + maxLength + ", cost " + cost + " bits (huffman " + huffman[0] + " bits, longest code " + huffman[1] + ")");
+    }
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(11);
+        ArrayHuffmanBuilder bytes = new ArrayHuffmanBuilder(256);
+        ArrayHuffmanBuilder chars = new ArrayHuffmanBuilder(HuffmanCodeTable.CHAR_SYMBOLS);
+
+        // Test case #1: boundary cases of 0, 1 & 2 symbols
+        check(bytes, "no symbols", new long[256], LengthLimitedHuffman.DEFAULT_MAX_LENGTH, true, random);
+        long[] one = new long[256];
+        one['a'] = 5;
+        check(bytes, "1 symbol", one, LengthLimitedHuffman.DEFAULT_MAX_LENGTH, true, random);
+        one['b'] = 1;
+        check(bytes, "2 symbols", one, LengthLimitedHuffman.DEFAULT_MAX_LENGTH, true, random);
+
+        // Test case #2: random counts, limit not binding (the same builders are reused, so leftovers from earlier builds would show up)
+        for (int i = 0; i < 3; i++) check(bytes, "random bytes #" + (i + 1), LengthLimitedHuffman.randomCounts(256, random), LengthLimitedHuffman.DEFAULT_MAX_LENGTH, true, random);
+        long[] charCounts = LengthLimitedHuffman.randomCounts(HuffmanCodeTable.CHAR_SYMBOLS, random);
+        check(chars, "random chars", charCounts, 40, true, random);
+
+        // Test case #3: limit binding, falls back to package-merge
+        check(chars, "random chars, limit 24", charCounts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH, true, random);
+        check(bytes, "fibonacci, limit 24", Arrays.copyOf(LengthLimitedHuffman.fibonacciCounts(40), 256), LengthLimitedHuffman.DEFAULT_MAX_LENGTH, true, random);
+
+        // Test case #4: Fibonacci counts, huffman needs 39 bits
+        check(bytes, "fibonacci, no limit", Arrays.copyOf(LengthLimitedHuffman.fibonacciCounts(40), 256), 62, true, random);
+
+        // Test case #5: counts too large for the sort key, scaled down before building
+        long[] huge = new long[256];
+        for (int symbol = 0; symbol < 16; symbol++) huge[symbol] = (1L << 50) + random.nextInt(1 << 20) * (1L << 20);
+        check(bytes, "huge counts", huge, LengthLimitedHuffman.DEFAULT_MAX_LENGTH, false, random);
+    }
+}
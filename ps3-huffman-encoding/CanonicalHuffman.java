@@ -0,0 +1,161 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * purpose: canonical huffman codes
+ * Only the code length of each character is kept from the code tree; codes are then reassigned in
+ * (length, character) order, so the whole code can be rebuilt from lengths alone.
+ * That lets compressed files carry a small header instead of needing the in-memory code tree.
+ *
+ * Header layout: magic (2 bytes), symbol count (4 bytes), then (char, code length) per symbol, 3 bytes each
+ *
+ * 17 oct. 26
+ */
+
+public class CanonicalHuffman {
+    public static final int MAGIC = 0x4843;        // "HC"
+    public static final int MAX_CODE_LENGTH = 32;  // Canonical codes are kept in an int
+
+    /**
+     * Code length of every character in the tree, indexed by character
+     *
+     * @param codeTree
+     * @param numSymbols
+     * @return lengths (0 for characters not in the tree)
+     */
+    public static byte[] codeLengths(BinaryTree<CodeTreeElement> codeTree, int numSymbols) {
+        byte[] lengths = new byte[numSymbols];
+        if (codeTree == null) return lengths;
+
+        // Safety check: boundary case of 1 character, same code length as computeCodes() gives it
+        if (codeTree.isLeaf()) {
+            lengths[codeTree.getData().getChar()] = 1;
+            return lengths;
+        }
+
+        // Walks the tree with an explicit stack, depth = code length
+        Deque<BinaryTree<CodeTreeElement>> trees = new ArrayDeque<BinaryTree<CodeTreeElement>>();
+        Deque<Integer> depths = new ArrayDeque<Integer>();
+        trees.push(codeTree);
+        depths.push(0);
+        while (!trees.isEmpty()) {
+            BinaryTree<CodeTreeElement> tree = trees.pop();
+            int depth = depths.pop();
+            if (tree.isLeaf()) {
+                if (depth > MAX_CODE_LENGTH) {
+                    throw new IllegalArgumentException("Code length " + depth + " is over " + MAX_CODE_LENGTH + " bits");
+                }
+                lengths[tree.getData().getChar()] = (byte)depth;
+            } else {
+                if (tree.hasLeft()) { trees.push(tree.getLeft()); depths.push(depth + 1); }
+                if (tree.hasRight()) { trees.push(tree.getRight()); depths.push(depth + 1); }
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * Assigns canonical codes: shorter codes first, characters in increasing order within a length
+     *
+     * @param lengths code length per symbol, 0 for unused symbols
+     * @return flat code table
+     */
+    public static HuffmanCodeTable canonicalTable(byte[] lengths) {
+
+        // Counts codes of each length
+        int[] lengthCounts = new int[MAX_CODE_LENGTH + 1];
+        for (byte length : lengths) {
+            if ((length & 0xFF) > MAX_CODE_LENGTH) throw new IllegalArgumentException("Code length over " + MAX_CODE_LENGTH + " bits");
+            lengthCounts[length & 0xFF]++;
+        }
+        lengthCounts[0] = 0;
+
+        // First code of each length
+        long[] nextCode = new long[MAX_CODE_LENGTH + 1];
+        long code = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+            code = (code + lengthCounts[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+
+        // Hands out consecutive codes in symbol order
+        int[] codes = new int[lengths.length];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            int length = lengths[symbol] & 0xFF;
+            if (length == 0) continue;
+            if (nextCode[length] >= (1L << length)) throw new IllegalArgumentException("Code lengths are over-subscribed");
+            codes[symbol] = (int)nextCode[length]++;
+        }
+        return new HuffmanCodeTable(codes, lengths.clone());
+    }
+
+    /**
+     * Rebuilds codes in the same form as computeCodes() from code lengths alone
+     *
+     * @param codeLengths
+     * @return map of characters to '0'/'1' codes
+     */
+    public static Map<Character, String> computeCodes(Map<Character, Integer> codeLengths) {
+        byte[] lengths = new byte[HuffmanCodeTable.CHAR_SYMBOLS];
+        for (Map.Entry<Character, Integer> entry : codeLengths.entrySet()) {
+            lengths[entry.getKey()] = (byte)(int)entry.getValue();
+        }
+        return toCodeMap(canonicalTable(lengths));
+    }
+
+    /**
+     * Converts a flat code table back into computeCodes() form
+     *
+     * @param codeTable
+     * @return map of characters to '0'/'1' codes
+     */
+    public static Map<Character, String> toCodeMap(HuffmanCodeTable codeTable) {
+        Map<Character, String> codeMap = new TreeMap<Character, String>();
+        for (int symbol = 0; symbol < codeTable.numSymbols(); symbol++) {
+            if (codeTable.getLength(symbol) > 0) codeMap.put((char)symbol, codeTable.getCodeString(symbol));
+        }
+        return codeMap;
+    }
+
+    /**
+     * Writes the code lengths as a file header
+     *
+     * @param lengths
+     * @param output
+     */
+    public static void writeHeader(byte[] lengths, DataOutputStream output) throws IOException {
+        int count = 0;
+        for (byte length : lengths) if (length != 0) count++;
+
+        output.writeShort(MAGIC);
+        output.writeInt(count);
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] != 0) {
+                output.writeChar(symbol);
+                output.writeByte(lengths[symbol]);
+            }
+        }
+    }
+
+    /**
+     * Reads code lengths written by writeHeader()
+     *
+     * @param input
+     * @param numSymbols
+     * @return lengths indexed by symbol
+     */
+    public static byte[] readHeader(DataInputStream input, int numSymbols) throws IOException {
+        if (input.readUnsignedShort() != MAGIC) throw new IOException("Not a canonical huffman file");
+        int count = input.readInt();
+        if (count < 0 || count > numSymbols) throw new IOException("Bad symbol count " + count);
+
+        byte[] lengths = new byte[numSymbols];
+        for (int i = 0; i < count; i++) {
+            int symbol = input.readChar();
+            int length = input.readUnsignedByte();
+            if (symbol >= numSymbols || length == 0 || length > MAX_CODE_LENGTH) throw new IOException("Bad code length entry");
+            lengths[symbol] = (byte)length;
+        }
+        return lengths;
+    }
+}
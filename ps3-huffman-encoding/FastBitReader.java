@@ -0,0 +1,164 @@
+import java.io.*;
+
+/**
+ * purpose: word-at-a-time bit reader for huffman decompression
+ * Reads the FastBitWriter layout; bits are kept left-aligned in a 64-bit accumulator
+ * so a decoder can peek several bits at once instead of calling readBit() per bit
+ *
+ * Two ways of finding the end of the bits:
+ *  - trailer: the stream ends with FastBitWriter's valid-bit-count byte
+ *  - bit limit: the caller already knows how many bits to read (e.g. from a header)
+ *
+ * 17 oct. 26
+ */
+
+public class FastBitReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream input;
+    private final byte[] buffer;
+    private final boolean trailer;
+    private int position = 0;           // Next unread byte in buffer
+    private int limit = 0;              // Bytes before limit are safe to load into the accumulator
+    private int filled = 0;             // Bytes read into buffer
+    private boolean endOfStream = false;
+    private long remainingBits;         // Valid bits not yet loaded into the accumulator
+    private long accumulator = 0;       // Next bit is the most significant bit
+    private int bufferedBits = 0;       // Number of valid bits in accumulator
+
+    public FastBitReader(String pathName) throws IOException {
+        this(new FileInputStream(pathName));
+    }
+
+    /**
+     * Reader for a stream that ends with a FastBitWriter trailer byte
+     *
+     * @param input
+     */
+    public FastBitReader(InputStream input) {
+        this.buffer = new byte[BUFFER_SIZE];
+        this.input = input;
+        this.trailer = true;
+        this.remainingBits = Long.MAX_VALUE;    // Unknown until end of stream is reached
+    }
+
+    /**
+     * Reader for exactly bitCount bits, no trailer byte
+     *
+     * @param input
+     * @param bitCount
+     */
+    public FastBitReader(InputStream input, long bitCount) {
+        this(input, bitCount, BUFFER_SIZE);
+    }
+
+    /**
+     * Bit-limit reader with a smaller buffer, for many short inputs (e.g. small messages)
+     *
+     * @param input
+     * @param bitCount
+     * @param bufferSize
+     */
+    FastBitReader(InputStream input, long bitCount, int bufferSize) {
+        this.buffer = new byte[bufferSize];
+        this.input = input;
+        this.trailer = false;
+        this.remainingBits = bitCount;
+    }
+
+    /**
+     * Loads the accumulator with up to 57 bits
+     *
+     * @return number of valid bits in the accumulator (0 only at end of stream)
+     */
+    public int refill() throws IOException {
+        if (bufferedBits > 56) return bufferedBits;
+        while (bufferedBits <= 56 && remainingBits > 0) {
+            if (position == limit) {
+                if (endOfStream) break;
+                fillBuffer();
+                continue;
+            }
+
+            // Only the last byte can be partially valid; padding bits are masked off
+            int valid = remainingBits < 8 ? (int)remainingBits : 8;
+            long b = buffer[position++] & (0xFF << (8 - valid)) & 0xFF;
+            accumulator |= b << (56 - bufferedBits);
+            bufferedBits += valid;
+            remainingBits -= valid;
+        }
+        return bufferedBits;
+    }
+
+    /**
+     * Next n bits without consuming them; bits past the end of the stream read as 0
+     *
+     * @param n 1 to 32
+     */
+    public int peekBits(int n) {
+        return (int)(accumulator >>> (64 - n));
+    }
+
+    /**
+     * Consumes n bits that are already in the accumulator (call refill() first)
+     *
+     * @param n
+     */
+    public void skipBits(int n) {
+        accumulator <<= n;
+        bufferedBits -= n;
+    }
+
+    public int readBits(int n) throws IOException {
+        if (refill() < n) throw new EOFException("Unexpected end of bit stream");
+        int bits = peekBits(n);
+        skipBits(n);
+        return bits;
+    }
+
+    public boolean readBit() throws IOException {
+        return readBits(1) == 1;
+    }
+
+    public boolean hasNext() throws IOException {
+        return refill() > 0;
+    }
+
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Helper method for refill — reads the next chunk of bytes into buffer
+     * In trailer mode the last 2 bytes are held back until end of stream,
+     * since the byte before the trailer may be partially valid
+     */
+    private void fillBuffer() throws IOException {
+        int carry = filled - position;
+        System.arraycopy(buffer, position, buffer, 0, carry);
+        position = 0;
+        filled = carry;
+
+        int holdBack = trailer ? 2 : 0;
+        while (!endOfStream && filled <= holdBack) {
+            int n = input.read(buffer, filled, buffer.length - filled);
+            if (n == -1) endOfStream = true;
+            else filled += n;
+        }
+
+        if (!endOfStream) {
+            limit = filled - holdBack;
+        } else if (!trailer) {
+            limit = filled;
+        } else if (filled == 0) {
+            limit = 0;      // Empty stream, no trailer at all
+            remainingBits = 0;
+        } else {
+
+            // Trailer byte found: now the exact number of remaining bits is known
+            int lastByteBits = buffer[filled - 1];
+            limit = filled - 1;
+            remainingBits = 8L * limit - (lastByteBits == 0 || limit == 0 ? 0 : 8 - lastByteBits);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.*;
+
+/**
+ * purpose: word-at-a-time bit writer for huffman compression
+ * Bits are packed into a 64-bit accumulator and flushed 32 bits at a time into a byte buffer,
+ * instead of one call per bit as in BufferedBitWriter
+ *
+ * Layout: payload bits MSB-first, last byte padded with 0s, followed by one trailer byte holding
+ * the number of valid bits in the last payload byte (0 = last byte is full / no payload)
+ *
+ * 17 oct. 26
+ */
+
+public class FastBitWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream output;
+    private final byte[] buffer;
+    private int position = 0;       // Next free index in buffer
+    private long accumulator = 0;   // Pending bits, right-aligned
+    private int pendingBits = 0;    // Number of valid bits in accumulator (always < 32 between calls)
+    private long totalBits = 0;
+    private final boolean trailer;
+
+    public FastBitWriter(String pathName) throws IOException {
+        this(new FileOutputStream(pathName));
+    }
+
+    public FastBitWriter(OutputStream output) {
+        this(output, true);
+    }
+
+    /**
+     * @param output
+     * @param trailer whether close() writes the valid-bit-count trailer byte
+     *                (formats that store the bit count in a header don't need it)
+     */
+    public FastBitWriter(OutputStream output, boolean trailer) {
+        this(output, trailer, BUFFER_SIZE);
+    }
+
+    /**
+     * Writer with a smaller buffer, for many short outputs (e.g. small messages)
+     *
+     * @param output
+     * @param trailer
+     * @param bufferSize at least 4 bytes
+     */
+    FastBitWriter(OutputStream output, boolean trailer, int bufferSize) {
+        if (bufferSize < 4) throw new IllegalArgumentException("Buffer must hold a 32-bit word");
+        this.buffer = new byte[bufferSize];
+        this.output = output;
+        this.trailer = trailer;
+    }
+
+    /**
+     * Writes the lowest <length> bits of code, most significant first
+     *
+     * @param code
+     * @param length 1 to 32
+     */
+    public void writeBits(int code, int length) throws IOException {
+        accumulator = (accumulator << length) | (code & 0xFFFFFFFFL);
+        pendingBits += length;
+        totalBits += length;
+
+        // Flushes a whole 32-bit word once one is available
+        if (pendingBits >= 32) {
+            if (position + 4 > buffer.length) flushBuffer();
+            int word = (int)(accumulator >>> (pendingBits - 32));
+            buffer[position] = (byte)(word >>> 24);
+            buffer[position + 1] = (byte)(word >>> 16);
+            buffer[position + 2] = (byte)(word >>> 8);
+            buffer[position + 3] = (byte)word;
+            position += 4;
+            pendingBits -= 32;
+        }
+    }
+
+    public void writeBit(boolean bit) throws IOException {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Number of bits written so far
+     */
+    public long getBitCount() {
+        return totalBits;
+    }
+
+    /**
+     * Pads the stream to a byte boundary & flushes everything, without closing the underlying stream
+     */
+    public void finish() throws IOException {
+        while (pendingBits > 0) {
+            if (position == buffer.length) flushBuffer();
+            int shift = pendingBits - 8;
+            buffer[position++] = (byte)(shift >= 0 ? accumulator >>> shift : accumulator << -shift);
+            pendingBits = Math.max(shift, 0);
+        }
+        if (trailer) {
+            if (position == buffer.length) flushBuffer();
+            buffer[position++] = (byte)(totalBits % 8);
+        }
+        flushBuffer();
+        output.flush();
+    }
+
+    public void close() throws IOException {
+        finish();
+        output.close();
+    }
+
+    private void flushBuffer() throws IOException {
+        output.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * purpose: fast frequency counting for huffman compression
+ * Memory-maps the file & counts into primitive long arrays instead of a boxed TreeMap.
+ * Counts are spread over several interleaved arrays so runs of the same symbol don't keep
+ * incrementing the same memory slot back to back; the arrays are summed at the end.
+ *
+ * 17 oct. 26
+ */
+
+public class FrequencyCounter {
+    private static final long MAP_CHUNK = 1L << 30;     // Largest region mapped at once
+    private static final int CHAR_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Counts raw byte values
+     *
+     * @param pathName
+     * @return counts indexed by unsigned byte value
+     */
+    public static long[] countBytes(String pathName) throws IOException {
+        long[] counts0 = new long[256], counts1 = new long[256], counts2 = new long[256], counts3 = new long[256];
+        FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            for (long start = 0; start < size; start += MAP_CHUNK) {
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_CHUNK, size - start));
+                bytes.order(ByteOrder.LITTLE_ENDIAN);
+                int length = bytes.limit();
+
+                // 8 bytes per read, 2 into each count array
+                int i = 0;
+                for (; i + 8 <= length; i += 8) {
+                    long word = bytes.getLong(i);
+                    counts0[(int)word & 0xFF]++;
+                    counts1[(int)(word >>> 8) & 0xFF]++;
+                    counts2[(int)(word >>> 16) & 0xFF]++;
+                    counts3[(int)(word >>> 24) & 0xFF]++;
+                    counts0[(int)(word >>> 32) & 0xFF]++;
+                    counts1[(int)(word >>> 40) & 0xFF]++;
+                    counts2[(int)(word >>> 48) & 0xFF]++;
+                    counts3[(int)(word >>> 56) & 0xFF]++;
+                }
+                for (; i < length; i++) counts0[bytes.get(i) & 0xFF]++;
+            }
+        } finally {
+            channel.close();
+        }
+
+        for (int b = 0; b < 256; b++) counts0[b] += counts1[b] + counts2[b] + counts3[b];
+        return counts0;
+    }
+
+    /**
+     * Counts characters, decoded with the given charset the same way FileReader does
+     * (malformed input becomes the replacement character)
+     *
+     * @param pathName
+     * @param charset
+     * @return counts indexed by char
+     */
+    public static long[] countChars(String pathName, Charset charset) throws IOException {
+        long[] counts0 = new long[HuffmanCodeTable.CHAR_SYMBOLS], counts1 = new long[HuffmanCodeTable.CHAR_SYMBOLS];
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+
+        FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            long start = 0;
+            do {
+                long chunk = Math.min(MAP_CHUNK, size - start);
+                boolean last = (start + chunk == size);
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, chunk);
+
+                // Decodes the mapped bytes a char buffer at a time
+                while (decoder.decode(bytes, chars, last).isOverflow()) {
+                    countAndClear(chars, counts0, counts1);
+                }
+                countAndClear(chars, counts0, counts1);
+                if (last) {
+                    while (decoder.flush(chars).isOverflow()) countAndClear(chars, counts0, counts1);
+                    countAndClear(chars, counts0, counts1);
+                }
+
+                // A character split across chunks is left undecoded & starts the next chunk
+                start += bytes.position();
+            } while (start < size);
+        } finally {
+            channel.close();
+        }
+
+        for (int c = 0; c < counts0.length; c++) counts0[c] += counts1[c];
+        return counts0;
+    }
+
+    /**
+     * Converts counts to the frequency table form used by makeCodeTree()
+     *
+     * @param counts
+     * @return map of symbols with non-zero counts
+     */
+    public static Map<Character, Long> toMap(long[] counts) {
+        Map<Character, Long> frequencyTable = new TreeMap<Character, Long>();
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > 0) frequencyTable.put((char)c, counts[c]);
+        }
+        return frequencyTable;
+    }
+
+    /**
+     * Helper method for countChars — counts the decoded chars, alternating between the two arrays
+     */
+    private static void countAndClear(CharBuffer chars, long[] counts0, long[] counts1) {
+        char[] array = chars.array();
+        int length = chars.position();
+        int i = 0;
+        for (; i + 2 <= length; i += 2) {
+            counts0[array[i]]++;
+            counts1[array[i + 1]]++;
+        }
+        if (i < length) counts0[array[i]]++;
+        chars.clear();
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * purpose: benchmark harness for the stages of HuffmanImplementation
+ * Times countFrequencies, makeCodeTree, computeCodes, compressFile & decompressFile (and their fast versions,
+ * plus the array-based code build)
+ * separately on synthetic corpora of different entropy, reporting MB/s & bytes allocated per operation.
+ * Each measurement follows a warm-up phase so the JIT has compiled the code being measured.
+ *
+ * Usage: java HuffmanBenchmark [corpus size in MB] [warm-up iterations] [measured iterations]
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanBenchmark {
+    private static volatile Object sink;    // Keeps results alive so the JIT can't drop the work
+
+    private final int warmups;
+    private final int iterations;
+    private final com.sun.management.ThreadMXBean threads;
+
+    public HuffmanBenchmark(int warmups, int iterations) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+        this.threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * A single benchmarked operation
+     */
+    private interface Stage {
+        Object run() throws IOException;
+    }
+
+    /**
+     * Runs a stage warmups + iterations times & prints the average over the measured runs
+     *
+     * @param corpus
+     * @param name
+     * @param bytes input size the throughput is based on
+     * @param stage
+     */
+    private void measure(String corpus, String name, long bytes, Stage stage) throws IOException {
+        for (int i = 0; i < warmups; i++) sink = stage.run();
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) sink = stage.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        double seconds = elapsed / 1e9 / iterations;
+        System.out.printf("%-12s %-22s %10.3f ms/op %10.1f MB/s %14d B/op%n",
+                corpus, name, seconds * 1e3, bytes / seconds / 1e6, allocated / iterations);
+    }
+
+    /**
+     * Benchmarks every stage on one corpus file
+     *
+     * @param corpus name printed in the results
+     * @param pathName
+     * @param workDir directory for compressed & decompressed output
+     */
+    public void run(String corpus, String pathName, Path workDir) throws IOException {
+        HuffmanImplementation huff = new HuffmanImplementation();
+        long bytes = Files.size(Paths.get(pathName));
+        String compressed = workDir.resolve(corpus + ".huff").toString();
+        String compressedFast = workDir.resolve(corpus + ".fast").toString();
+        String decompressed = workDir.resolve(corpus + ".out").toString();
+
+        // Inputs for the later stages come from the earlier ones
+        Map<Character, Long> frequencies = huff.countFrequencies(pathName);
+        BinaryTree<CodeTreeElement> codeTree = huff.makeCodeTree(frequencies);
+        Map<Character, String> codeMap = huff.computeCodes(codeTree);
+        huff.compressFile(codeMap, pathName, compressed);
+        huff.compressFileFast(codeMap, pathName, compressedFast);
+        long[] counts = new long[HuffmanCodeTable.CHAR_SYMBOLS];
+        for (Map.Entry<Character, Long> entry : frequencies.entrySet()) counts[entry.getKey()] = entry.getValue();
+        ArrayHuffmanBuilder builder = new ArrayHuffmanBuilder(HuffmanCodeTable.CHAR_SYMBOLS);
+
+        measure(corpus, "countFrequencies", bytes, () -> huff.countFrequencies(pathName));
+        measure(corpus, "makeCodeTree", bytes, () -> huff.makeCodeTree(frequencies));
+        measure(corpus, "computeCodes", bytes, () -> huff.computeCodes(codeTree));
+        measure(corpus, "arrayCodeBuild", bytes, () -> { builder.build(counts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH); return builder.getCodes(); });
+        measure(corpus, "compressFile", bytes, () -> { huff.compressFile(codeMap, pathName, compressed); return null; });
+        measure(corpus, "compressFileFast", bytes, () -> { huff.compressFileFast(codeMap, pathName, compressedFast); return null; });
+        measure(corpus, "decompressFile", bytes, () -> { huff.decompressFile(compressed, decompressed, codeTree); return null; });
+        measure(corpus, "decompressFileFast", bytes, () -> { huff.decompressFileFast(compressedFast, decompressed, codeTree); return null; });
+    }
+
+    /**
+     * Every character equally likely (high entropy)
+     */
+    public static char[] uniformCorpus(int length, int alphabet, Random random) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = (char)(' ' + random.nextInt(alphabet));
+        return chars;
+    }
+
+    /**
+     * Character ranks follow a Zipf distribution with exponent 1 (skewed, long codes for rare characters)
+     */
+    public static char[] zipfCorpus(int length, int alphabet, Random random) {
+        double[] cumulative = new double[alphabet];
+        double total = 0;
+        for (int rank = 0; rank < alphabet; rank++) {
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            if (rank < 0) rank = -rank - 1;
+            chars[i] = (char)(' ' + Math.min(rank, alphabet - 1));
+        }
+        return chars;
+    }
+
+    /**
+     * One character repeated (boundary case of 1 character)
+     */
+    public static char[] singleSymbolCorpus(int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        return chars;
+    }
+
+    /**
+     * English-like text: Zipf-distributed words from a small vocabulary, with spaces & punctuation
+     */
+    public static char[] englishCorpus(int length, Random random) {
+        String[] words = ("the of and to a in that is was he for it with as his on be at by i had not are but from or have " +
+                "an they which one you were her all she there would their we him been has when who will more no if out so said " +
+                "what up its about into than them can only other new some could time these two may then do first any my now " +
+                "such like our over man me even most made after also did many before must through back years where much your way " +
+                "well down should because each just those people how too little state good very make world still own see men work").split(" ");
+        char[] ranks = zipfCorpus(length / 4 + 1, words.length, random);
+        StringBuilder text = new StringBuilder(length + 16);
+        for (int i = 0; text.length() < length; i++) {
+            text.append(words[ranks[i % ranks.length] - ' ']);
+            int r = random.nextInt(20);
+            text.append(r == 0 ? ". " : r == 1 ? ", " : r == 2 ? "\n" : " ");
+        }
+        return text.substring(0, length).toCharArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int length = megabytes << 20;
+        Random random = new Random(10);     // Fixed seed so corpora are the same every run
+
+        Map<String, char[]> corpora = new LinkedHashMap<String, char[]>();
+        corpora.put("uniform", uniformCorpus(length, 95, random));
+        corpora.put("zipf", zipfCorpus(length, 95, random));
+        corpora.put("single", singleSymbolCorpus(length));
+        corpora.put("english", englishCorpus(length, random));
+
+        Path workDir = Files.createTempDirectory("huffman-benchmark");
+        try {
+            HuffmanBenchmark benchmark = new HuffmanBenchmark(warmups, iterations);
+            for (Map.Entry<String, char[]> corpus : corpora.entrySet()) {
+                Path input = workDir.resolve(corpus.getKey() + ".txt");
+                Writer output = new BufferedWriter(new FileWriter(input.toString()));
+                output.write(corpus.getValue());
+                output.close();
+                benchmark.run(corpus.getKey(), input.toString(), workDir);
+            }
+
+            // Real text too, if the course inputs are around
+            if (Files.exists(Paths.get("inputs/WarAndPeace.txt"))) {
+                benchmark.run("WarAndPeace", "inputs/WarAndPeace.txt", workDir);
+            }
+        } finally {
+            deleteAll(workDir);
+        }
+    }
+
+    /**
+     * Helper method for main — deletes the work directory & the inputs & outputs generated in it
+     */
+    private static void deleteAll(Path workDir) throws IOException {
+        File[] files = workDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) Files.deleteIfExists(file.toPath());
+        }
+        Files.deleteIfExists(workDir);
+    }
+}
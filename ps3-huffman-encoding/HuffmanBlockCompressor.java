@@ -0,0 +1,298 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * purpose: parallel block-mode huffman compression
+ * Input is read once & split into fixed-size blocks of characters. Frequencies are counted in parallel
+ * (fork-join, merged at the end) and every block is encoded into its own bit stream, so blocks can be
+ * encoded & decoded on all cores at once.
+ *
+ * File layout: canonical header (see CanonicalHuffman), block size (4 bytes), block count (4 bytes),
+ * total characters (8 bytes), then per block: payload offset (8 bytes) & bit count (8 bytes), then payloads
+ *
+ * The whole input is held in memory as one char array (briefly twice while compressFile reads it), so block
+ * mode is limited to files of under 2^31 characters & needs memory for about 4 bytes per character.
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanBlockCompressor {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;   // Characters per block
+
+    private final int blockSize;
+    private final ForkJoinPool pool;
+
+    public HuffmanBlockCompressor() {
+        this(DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public HuffmanBlockCompressor(int blockSize, ForkJoinPool pool) {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive");
+        this.blockSize = blockSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Counts character frequencies of chars[0, length) in parallel
+     *
+     * @param chars
+     * @param length
+     * @return frequency table in the same form as countFrequencies()
+     */
+    public Map<Character, Long> countFrequencies(char[] chars, int length) {
+        long[] counts = pool.invoke(new CountTask(chars, 0, length, blockSize));
+        return FrequencyCounter.toMap(counts);
+    }
+
+    public void compressFile(String pathName, String compressedPathName) throws IOException {
+        CharArrayWriter text = readAllChars(pathName);
+        char[] chars = text.toCharArray();
+        int length = chars.length;
+
+        // Shared code for all blocks, built from the merged frequencies
+        byte[] lengths = LengthLimitedHuffman.codeLengths(countFrequencies(chars, length), HuffmanCodeTable.CHAR_SYMBOLS, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        HuffmanCodeTable codeTable = CanonicalHuffman.canonicalTable(lengths);
+
+        // Encodes every block into its own byte array
+        int blockCount = (length + blockSize - 1) / blockSize;
+        byte[][] payloads = new byte[blockCount][];
+        long[] bitCounts = new long[blockCount];
+        pool.invoke(new EncodeTask(chars, length, blockSize, codeTable, payloads, bitCounts, 0, blockCount));
+
+        // Header & block index, then payloads back to back
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compressedPathName)));
+        CanonicalHuffman.writeHeader(lengths, output);
+        output.writeInt(blockSize);
+        output.writeInt(blockCount);
+        output.writeLong(length);
+        long offset = 0;
+        for (int b = 0; b < blockCount; b++) {
+            output.writeLong(offset);
+            output.writeLong(bitCounts[b]);
+            offset += payloads[b].length;
+        }
+        for (byte[] payload : payloads) output.write(payload);
+        output.close();
+    }
+
+    public void decompressFile(String compressedPathName, String decompressedPathName) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(compressedPathName), StandardOpenOption.READ);
+        char[] chars;
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+            // Reads header & block index
+            byte[] lengths = CanonicalHuffman.readHeader(input, HuffmanCodeTable.CHAR_SYMBOLS);
+            int storedBlockSize = input.readInt();
+            int blockCount = input.readInt();
+            long length = input.readLong();
+            if (length > Integer.MAX_VALUE - 8) throw new IOException("File too large for block mode");
+            if (storedBlockSize <= 0 || length < 0 || blockCount != (length + storedBlockSize - 1) / storedBlockSize) {
+                throw new IOException("Corrupt block header");
+            }
+            long[] offsets = new long[blockCount + 1];
+            long[] bitCounts = new long[blockCount];
+            for (int b = 0; b < blockCount; b++) {
+                offsets[b] = input.readLong();
+                bitCounts[b] = input.readLong();
+            }
+            long dataStart = headerSize(lengths, blockCount);
+            offsets[blockCount] = channel.size() - dataStart;
+            checkIndex(offsets, bitCounts);
+
+            // Decodes all blocks in parallel straight into the output array
+            HuffmanCodeTable codeTable = CanonicalHuffman.canonicalTable(lengths);
+            chars = new char[(int)length];
+            try {
+                pool.invoke(new DecodeTask(channel, dataStart, offsets, bitCounts, codeTable, chars, storedBlockSize, 0, blockCount));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } finally {
+            channel.close();
+        }
+
+        BufferedWriter output = new BufferedWriter(new FileWriter(decompressedPathName));
+        output.write(chars);
+        output.close();
+    }
+
+    /**
+     * Reads the whole file once (same charset as FileReader in HuffmanImplementation)
+     *
+     * @param pathName
+     * @return characters of the file
+     */
+    static CharArrayWriter readAllChars(String pathName) throws IOException {
+        Reader input = new FileReader(pathName);
+        CharArrayWriter text = new CharArrayWriter();
+        char[] buffer = new char[1 << 16];
+        int n = 0;  // characters read
+        while ((n = input.read(buffer)) != -1) {
+            text.write(buffer, 0, n);
+        }
+        input.close();
+        return text;
+    }
+
+    /**
+     * Helper method for decompressFile — checks the block index before any block is decoded, so a corrupt
+     * file fails with an IOException here rather than with a runtime exception out of the fork-join pool
+     */
+    private static void checkIndex(long[] offsets, long[] bitCounts) throws IOException {
+        if (offsets[0] != 0) throw new IOException("Corrupt block index");
+        for (int b = 0; b < bitCounts.length; b++) {
+            long payloadSize = offsets[b + 1] - offsets[b];
+            if (payloadSize < 0 || payloadSize > Integer.MAX_VALUE) throw new IOException("Corrupt offsets around block " + b);
+            if (bitCounts[b] < 0 || bitCounts[b] > 8 * payloadSize) throw new IOException("Corrupt bit count for block " + b);
+        }
+    }
+
+    /**
+     * Helper method for decompressFile — size in bytes of everything before the payloads
+     */
+    private static long headerSize(byte[] lengths, int blockCount) {
+        int symbols = 0;
+        for (byte length : lengths) if (length != 0) symbols++;
+        return 2 + 4 + 3L * symbols + 4 + 4 + 8 + 16L * blockCount;
+    }
+
+    /**
+     * Fork-join frequency count: splits the range in half until it is at most one block,
+     * counts into a long array & merges the halves' arrays on the way back up
+     */
+    private static class CountTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] chars;
+        private final int from, to, blockSize;
+
+        CountTask(char[] chars, int from, int to, int blockSize) {
+            this.chars = chars;
+            this.from = from;
+            this.to = to;
+            this.blockSize = blockSize;
+        }
+
+        protected long[] compute() {
+            if (to - from <= blockSize) {
+                long[] counts = new long[HuffmanCodeTable.CHAR_SYMBOLS];
+                for (int i = from; i < to; i++) counts[chars[i]]++;
+                return counts;
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(chars, from, middle, blockSize);
+            left.fork();
+            long[] counts = new CountTask(chars, middle, to, blockSize).compute();
+            long[] leftCounts = left.join();
+            for (int c = 0; c < counts.length; c++) counts[c] += leftCounts[c];
+            return counts;
+        }
+    }
+
+    /**
+     * Encodes blocks [fromBlock, toBlock), each into its own bit stream
+     */
+    private static class EncodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final char[] chars;
+        private final int length, blockSize;
+        private final HuffmanCodeTable codeTable;
+        private final byte[][] payloads;
+        private final long[] bitCounts;
+        private final int fromBlock, toBlock;
+
+        EncodeTask(char[] chars, int length, int blockSize, HuffmanCodeTable codeTable, byte[][] payloads, long[] bitCounts, int fromBlock, int toBlock) {
+            this.chars = chars;
+            this.length = length;
+            this.blockSize = blockSize;
+            this.codeTable = codeTable;
+            this.payloads = payloads;
+            this.bitCounts = bitCounts;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        protected void compute() {
+            if (toBlock == fromBlock) return;   // Safety check: boundary case of empty input file
+            if (toBlock - fromBlock > 1) {
+                int middle = (fromBlock + toBlock) >>> 1;
+                invokeAll(new EncodeTask(chars, length, blockSize, codeTable, payloads, bitCounts, fromBlock, middle),
+                        new EncodeTask(chars, length, blockSize, codeTable, payloads, bitCounts, middle, toBlock));
+                return;
+            }
+            int start = fromBlock * blockSize;
+            int count = Math.min(blockSize, length - start);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(count / 2 + 16);
+            FastBitWriter bitOutput = new FastBitWriter(payload, false);
+            try {
+                codeTable.encode(chars, start, count, bitOutput);
+                bitOutput.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);  // In-memory stream, not expected
+            }
+            payloads[fromBlock] = payload.toByteArray();
+            bitCounts[fromBlock] = bitOutput.getBitCount();
+        }
+    }
+
+    /**
+     * Reads & decodes blocks [fromBlock, toBlock) into their slices of the output array
+     */
+    private static class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long dataStart;
+        private final long[] offsets, bitCounts;
+        private final HuffmanCodeTable codeTable;
+        private final char[] chars;
+        private final int blockSize, fromBlock, toBlock;
+
+        DecodeTask(FileChannel channel, long dataStart, long[] offsets, long[] bitCounts, HuffmanCodeTable codeTable, char[] chars, int blockSize, int fromBlock, int toBlock) {
+            this.channel = channel;
+            this.dataStart = dataStart;
+            this.offsets = offsets;
+            this.bitCounts = bitCounts;
+            this.codeTable = codeTable;
+            this.chars = chars;
+            this.blockSize = blockSize;
+            this.fromBlock = fromBlock;
+            this.toBlock = toBlock;
+        }
+
+        protected void compute() {
+            if (toBlock == fromBlock) return;   // Safety check: boundary case of empty input file
+            if (toBlock - fromBlock > 1) {
+                int middle = (fromBlock + toBlock) >>> 1;
+                invokeAll(new DecodeTask(channel, dataStart, offsets, bitCounts, codeTable, chars, blockSize, fromBlock, middle),
+                        new DecodeTask(channel, dataStart, offsets, bitCounts, codeTable, chars, blockSize, middle, toBlock));
+                return;
+            }
+            try {
+
+                // Positional read, safe to share the channel between threads
+                ByteBuffer payload = ByteBuffer.allocate((int)(offsets[fromBlock + 1] - offsets[fromBlock]));
+                long position = dataStart + offsets[fromBlock];
+                while (payload.hasRemaining()) {
+                    if (channel.read(payload, position + payload.position()) == -1) throw new EOFException("Truncated block " + fromBlock);
+                }
+
+                // Each task builds its own decoder (they are cheap & not shared between threads)
+                HuffmanDecoder decoder = new HuffmanDecoder(codeTable);
+                FastBitReader bitInput = new FastBitReader(new ByteArrayInputStream(payload.array()), bitCounts[fromBlock]);
+                int start = fromBlock * blockSize;
+                int count = Math.min(blockSize, chars.length - start);
+                if (decoder.decode(bitInput, chars, start, count) != count) throw new IOException("Block " + fromBlock + " is too short");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * purpose: flat code table for huffman encoding
+ * Turns the Map<Character, String> from computeCodes() into arrays indexed by symbol,
+ * so each character costs two array reads & one FastBitWriter.writeBits() call
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanCodeTable {
+    public static final int CHAR_SYMBOLS = 65536;   // One slot per Java char
+
+    private final int[] codes;          // Code bits, right-aligned (only valid for lengths <= 32)
+    private final byte[] lengths;       // Code length in bits, 0 if symbol has no code
+    private final String[] longCodes;   // Codes over 32 bits (rare, only for very skewed inputs); null if none
+    private final int maxLength;
+
+    public HuffmanCodeTable(Map<Character, String> codeMap) {
+        this(codeMap, CHAR_SYMBOLS);
+    }
+
+    public HuffmanCodeTable(Map<Character, String> codeMap, int numSymbols) {
+        codes = new int[numSymbols];
+        lengths = new byte[numSymbols];
+        String[] overflow = null;
+        int longest = 0;
+
+        // Converts each '0'/'1' string into an int
+        for (Map.Entry<Character, String> entry : codeMap.entrySet()) {
+            int symbol = entry.getKey();
+            String code = entry.getValue();
+            if (code.length() == 0 || code.length() > 255) {
+                throw new IllegalArgumentException("Unsupported code length " + code.length() + " for symbol " + symbol);
+            }
+            lengths[symbol] = (byte)code.length();
+            longest = Math.max(longest, code.length());
+
+            if (code.length() <= 32) {
+                codes[symbol] = (int)Long.parseLong(code, 2);
+            } else {
+                if (overflow == null) overflow = new String[numSymbols];
+                overflow[symbol] = code;
+            }
+        }
+        longCodes = overflow;
+        maxLength = longest;
+    }
+
+    /**
+     * Builds a table directly from code arrays (e.g. canonical codes), no codes over 32 bits
+     *
+     * @param codes
+     * @param lengths
+     */
+    public HuffmanCodeTable(int[] codes, byte[] lengths) {
+        this.codes = codes;
+        this.lengths = lengths;
+        this.longCodes = null;
+        int longest = 0;
+        for (byte length : lengths) longest = Math.max(longest, length & 0xFF);
+        if (longest > 32) throw new IllegalArgumentException("Codes over 32 bits need a code map");
+        this.maxLength = longest;
+    }
+
+    /**
+     * Wraps code arrays whose longest code is already known, skipping the scan (used by ArrayHuffmanBuilder)
+     *
+     * @param codes
+     * @param lengths
+     * @param maxLength
+     */
+    HuffmanCodeTable(int[] codes, byte[] lengths, int maxLength) {
+        if (maxLength > 32) throw new IllegalArgumentException("Codes over 32 bits need a code map");
+        this.codes = codes;
+        this.lengths = lengths;
+        this.longCodes = null;
+        this.maxLength = maxLength;
+    }
+
+    public int numSymbols() { return lengths.length; }
+    public int getMaxLength() { return maxLength; }
+    public int getLength(int symbol) { return lengths[symbol] & 0xFF; }
+    public int getCode(int symbol) { return codes[symbol]; }
+
+    /**
+     * Code for symbol as a '0'/'1' string, same form as computeCodes()
+     *
+     * @param symbol
+     * @return code, or null if symbol has no code
+     */
+    public String getCodeString(int symbol) {
+        int length = getLength(symbol);
+        if (length == 0) return null;
+        if (length > 32) return longCodes[symbol];
+        StringBuilder code = new StringBuilder(length);
+        for (int i = length - 1; i >= 0; i--) code.append(((codes[symbol] >>> i) & 1) == 1 ? '1' : '0');
+        return code.toString();
+    }
+
+    /**
+     * Writes the code for a single symbol
+     *
+     * @param symbol
+     * @param bitOutput
+     */
+    public void encode(int symbol, FastBitWriter bitOutput) throws IOException {
+        int length = lengths[symbol] & 0xFF;
+        if (length == 0) throw new IllegalArgumentException("No code for symbol " + symbol);
+        if (length <= 32) bitOutput.writeBits(codes[symbol], length);
+        else writeLongCode(longCodes[symbol], bitOutput);
+    }
+
+    /**
+     * Writes the codes for chars[offset, offset + count)
+     *
+     * @param chars
+     * @param offset
+     * @param count
+     * @param bitOutput
+     */
+    public void encode(char[] chars, int offset, int count, FastBitWriter bitOutput) throws IOException {
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            int symbol = chars[i];
+            int length = lengths[symbol] & 0xFF;
+
+            // Fast path: one table lookup & one word-buffer write per character
+            if (length != 0 && length <= 32) bitOutput.writeBits(codes[symbol], length);
+            else encode(symbol, bitOutput);
+        }
+    }
+
+    /**
+     * Helper method for encode — writes a code over 32 bits in 32-bit pieces
+     *
+     * @param code
+     * @param bitOutput
+     */
+    private void writeLongCode(String code, FastBitWriter bitOutput) throws IOException {
+        for (int start = 0; start < code.length(); start += 32) {
+            int end = Math.min(start + 32, code.length());
+            bitOutput.writeBits((int)Long.parseLong(code.substring(start, end), 2), end - start);
+        }
+    }
+}
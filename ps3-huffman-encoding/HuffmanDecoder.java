@@ -0,0 +1,204 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * purpose: lookup-table huffman decoder
+ * Precomputes a table indexed by the next K bits of input, so most characters are decoded
+ * with one peek & one table probe instead of following one tree pointer per bit.
+ * Codes longer than K bits continue bit by bit in a small array-based trie.
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanDecoder {
+    public static final int DEFAULT_TABLE_BITS = 10;
+
+    private final int tableBits;
+    private final int[] table;      // > 0: symbol << 8 | code length; < 0: ~(trie node); 0: invalid code
+    private int[] children;         // Trie for long codes: children[2 * node] for 0, children[2 * node + 1] for 1, -1 if none
+    private int[] symbols;          // Trie node symbol, -1 for inner nodes
+    private int numNodes = 0;
+
+    public HuffmanDecoder(BinaryTree<CodeTreeElement> codeTree) {
+        this(codeTree, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Builds the table by walking the code tree down to depth tableBits
+     *
+     * @param codeTree
+     * @param tableBits 1 to 16
+     */
+    public HuffmanDecoder(BinaryTree<CodeTreeElement> codeTree, int tableBits) {
+        this(tableBits);
+        if (codeTree == null) return;
+
+        // Safety check: boundary case of 1 character, which computeCodes() gives the code "0"
+        if (codeTree.isLeaf()) fillRange(0, 1, codeTree.getData().getChar());
+        else fillFromTree(codeTree, 0, 0);
+    }
+
+    public HuffmanDecoder(HuffmanCodeTable codeTable) {
+        this(codeTable, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Builds the table from a flat code table (e.g. canonical codes read from a file header)
+     *
+     * @param codeTable
+     * @param tableBits 1 to 16
+     */
+    public HuffmanDecoder(HuffmanCodeTable codeTable, int tableBits) {
+        this(tableBits);
+        for (int symbol = 0; symbol < codeTable.numSymbols(); symbol++) {
+            int length = codeTable.getLength(symbol);
+            if (length == 0) continue;
+            if (length <= tableBits) fillRange(codeTable.getCode(symbol), length, symbol);
+            else insertLongCode(codeTable.getCodeString(symbol), symbol);
+        }
+    }
+
+    private HuffmanDecoder(int tableBits) {
+        if (tableBits < 1 || tableBits > 16) throw new IllegalArgumentException("Table bits must be between 1 and 16");
+        this.tableBits = tableBits;
+        this.table = new int[1 << tableBits];
+        this.children = new int[32];
+        this.symbols = new int[16];
+    }
+
+    /**
+     * Decodes the next symbol
+     *
+     * @param bitInput
+     * @return symbol, or -1 at the end of the bit stream
+     */
+    public int decodeSymbol(FastBitReader bitInput) throws IOException {
+        int available = bitInput.refill();
+        if (available == 0) return -1;
+
+        // Fast path: whole code fits in the table
+        int entry = table[bitInput.peekBits(tableBits)];
+        if (entry > 0) {
+            int length = entry & 0xFF;
+            if (length > available) throw new EOFException("Truncated code at end of bit stream");
+            bitInput.skipBits(length);
+            return entry >>> 8;
+        }
+        if (available < tableBits) throw new EOFException("Truncated code at end of bit stream");
+        if (entry == 0) throw new IOException("Invalid code in bit stream");
+
+        // Slow path: long code, continues one bit at a time from the trie node for this prefix
+        bitInput.skipBits(tableBits);
+        int node = ~entry;
+        while (symbols[node] < 0) {
+            node = children[2 * node + (bitInput.readBit() ? 1 : 0)];
+            if (node < 0) throw new IOException("Invalid code in bit stream");
+        }
+        return symbols[node];
+    }
+
+    /**
+     * Decodes up to count characters into chars[offset, offset + count)
+     *
+     * @return number of characters decoded, 0 at the end of the bit stream
+     */
+    public int decode(FastBitReader bitInput, char[] chars, int offset, int count) throws IOException {
+        int n = 0;
+        while (n < count) {
+            int symbol = decodeSymbol(bitInput);
+            if (symbol < 0) break;
+            chars[offset + n++] = (char)symbol;
+        }
+        return n;
+    }
+
+    /**
+     * Helper method for tree constructor — fills table entries for every leaf at depth <= tableBits
+     * & moves deeper subtrees into the trie
+     *
+     * @param codeTree
+     * @param code bits so far
+     * @param depth
+     */
+    private void fillFromTree(BinaryTree<CodeTreeElement> codeTree, int code, int depth) {
+        if (codeTree.isLeaf()) {
+            fillRange(code, depth, codeTree.getData().getChar());
+        } else if (depth == tableBits) {
+            table[code] = ~addSubtree(codeTree);
+        } else {
+            if (codeTree.hasLeft()) fillFromTree(codeTree.getLeft(), code << 1, depth + 1);
+            if (codeTree.hasRight()) fillFromTree(codeTree.getRight(), (code << 1) | 1, depth + 1);
+        }
+    }
+
+    /**
+     * Helper method for fillFromTree — copies a subtree into the trie arrays
+     *
+     * @param codeTree
+     * @return trie node of the subtree's root
+     */
+    private int addSubtree(BinaryTree<CodeTreeElement> codeTree) {
+        int node = newNode();
+        if (codeTree.isLeaf()) {
+            symbols[node] = codeTree.getData().getChar();
+        } else {
+            if (codeTree.hasLeft()) {
+                int child = addSubtree(codeTree.getLeft());
+                children[2 * node] = child;
+            }
+            if (codeTree.hasRight()) {
+                int child = addSubtree(codeTree.getRight());
+                children[2 * node + 1] = child;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Every table index starting with code (length bits) decodes to symbol
+     *
+     * @param code
+     * @param length
+     * @param symbol
+     */
+    private void fillRange(int code, int length, int symbol) {
+        int shift = tableBits - length;
+        int start = code << shift;
+        int entry = (symbol << 8) | length;
+        Arrays.fill(table, start, start + (1 << shift), entry);
+    }
+
+    /**
+     * Adds a code longer than tableBits to the trie under the table entry for its first tableBits bits
+     *
+     * @param code
+     * @param symbol
+     */
+    private void insertLongCode(String code, int symbol) {
+        int prefix = Integer.parseInt(code.substring(0, tableBits), 2);
+        if (table[prefix] > 0) throw new IllegalArgumentException("Codes are not prefix-free");
+        if (table[prefix] == 0) table[prefix] = ~newNode();
+
+        int node = ~table[prefix];
+        for (int i = tableBits; i < code.length(); i++) {
+            int slot = 2 * node + (code.charAt(i) == '1' ? 1 : 0);
+            if (children[slot] < 0) {
+                int child = newNode();
+                children[slot] = child;
+            }
+            node = children[slot];
+        }
+        symbols[node] = symbol;
+    }
+
+    private int newNode() {
+        if (numNodes == symbols.length) {
+            symbols = Arrays.copyOf(symbols, 2 * numNodes);
+            children = Arrays.copyOf(children, 4 * numNodes);
+        }
+        symbols[numNodes] = -1;
+        children[2 * numNodes] = -1;
+        children[2 * numNodes + 1] = -1;
+        return numNodes++;
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * purpose: pretrained huffman code for compressing many small messages
+ * The code is trained once from a sample corpus & saved, so each message skips countFrequencies()
+ * & makeCodeTree() entirely & carries no code table of its own, only the dictionary ID.
+ * Characters missing from the sample are written as ESCAPE followed by their 16 raw bits, as in HuffmanStreams.
+ * Instances never change after construction, so one dictionary can be shared by any number of threads.
+ *
+ * Dictionary layout: magic (2 bytes), ID (4 bytes), canonical header (see CanonicalHuffman)
+ * Message layout: dictionary ID (4 bytes), character count (varint, 1-5 bytes), payload bits padded to a byte
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanDictionary {
+    public static final int MAGIC = 0x4844;                 // "HD"
+    public static final char ESCAPE = HuffmanStreams.ESCAPE;
+
+    private final int id;                   // CRC-32 of the code lengths, so different codes get different IDs
+    private final byte[] lengths;
+    private final HuffmanCodeTable codeTable;
+    private final HuffmanDecoder decoder;
+    private final int escapeBits;           // Escape code plus the raw character
+
+    private HuffmanDictionary(byte[] lengths) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        CanonicalHuffman.writeHeader(lengths, new DataOutputStream(header));
+        CRC32 crc = new CRC32();
+        crc.update(header.toByteArray());
+
+        this.id = (int)crc.getValue();
+        this.lengths = lengths;
+        this.codeTable = CanonicalHuffman.canonicalTable(lengths);
+        this.decoder = new HuffmanDecoder(codeTable);
+        this.escapeBits = codeTable.getLength(ESCAPE) + 16;
+    }
+
+    /**
+     * Trains a dictionary on character frequencies (e.g. countFrequencies() of a sample corpus)
+     *
+     * @param frequencies
+     * @return dictionary coding every character of the sample, plus the escape
+     */
+    public static HuffmanDictionary train(Map<Character, Long> frequencies) throws IOException {
+        Map<Character, Long> withEscape = new TreeMap<Character, Long>(frequencies);
+        withEscape.put(ESCAPE, 1L);
+        return new HuffmanDictionary(LengthLimitedHuffman.codeLengths(withEscape, HuffmanCodeTable.CHAR_SYMBOLS, LengthLimitedHuffman.DEFAULT_MAX_LENGTH));
+    }
+
+    /**
+     * Trains a dictionary on a sample file
+     *
+     * @param samplePathName
+     */
+    public static HuffmanDictionary train(String samplePathName) throws IOException {
+        return train(new HuffmanImplementation().countFrequencies(samplePathName));
+    }
+
+    /**
+     * Trains a dictionary on sample messages
+     *
+     * @param samples
+     */
+    public static HuffmanDictionary train(Iterable<? extends CharSequence> samples) throws IOException {
+        long[] counts = new long[HuffmanCodeTable.CHAR_SYMBOLS];
+        for (CharSequence sample : samples) {
+            for (int i = 0; i < sample.length(); i++) counts[sample.charAt(i)]++;
+        }
+        return train(FrequencyCounter.toMap(counts));
+    }
+
+    public int getId() { return id; }
+
+    /**
+     * Serializes the dictionary
+     *
+     * @param output
+     */
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeShort(MAGIC);
+        data.writeInt(id);
+        CanonicalHuffman.writeHeader(lengths, data);
+        data.flush();
+    }
+
+    /**
+     * Reads a dictionary written by write()
+     *
+     * @param input
+     */
+    public static HuffmanDictionary read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readUnsignedShort() != MAGIC) throw new IOException("Not a huffman dictionary");
+        int id = data.readInt();
+        HuffmanDictionary dictionary = new HuffmanDictionary(CanonicalHuffman.readHeader(data, HuffmanCodeTable.CHAR_SYMBOLS));
+        if (dictionary.id != id) throw new IOException("Dictionary is corrupt (ID doesn't match its code)");
+        return dictionary;
+    }
+
+    public void save(String pathName) throws IOException {
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(pathName));
+        write(output);
+        output.close();
+    }
+
+    public static HuffmanDictionary load(String pathName) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(pathName));
+        try {
+            return read(input);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Compresses one message
+     *
+     * @param message
+     * @return dictionary ID, character count & payload
+     */
+    public byte[] compress(CharSequence message) throws IOException {
+        int count = message.length();
+
+        // Exact payload size first, so nothing is allocated beyond the output itself
+        long bits = 0;
+        for (int i = 0; i < count; i++) {
+            char c = message.charAt(i);
+            int length = (c == ESCAPE) ? 0 : codeTable.getLength(c);
+            bits += (length != 0) ? length : escapeBits;
+        }
+        int payloadBytes = (int)((bits + 7) / 8);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(9 + payloadBytes);
+        new DataOutputStream(output).writeInt(id);
+        writeVarInt(count, output);
+        FastBitWriter bitOutput = new FastBitWriter(output, false, Math.max(4, Math.min(payloadBytes + 4, 1 << 16)));
+        for (int i = 0; i < count; i++) {
+            char c = message.charAt(i);
+            if (c == ESCAPE || codeTable.getLength(c) == 0) {
+                codeTable.encode(ESCAPE, bitOutput);
+                bitOutput.writeBits(c, 16);
+            } else {
+                codeTable.encode(c, bitOutput);
+            }
+        }
+        bitOutput.finish();
+        return output.toByteArray();
+    }
+
+    /**
+     * Decompresses a message written by compress() with this dictionary
+     *
+     * @param compressed
+     * @return original message
+     */
+    public String decompress(byte[] compressed) throws IOException {
+        if (messageId(compressed) != id) throw new IOException("Message was compressed with dictionary " + Integer.toHexString(messageId(compressed)) + ", not " + Integer.toHexString(id));
+
+        // Character count; a 5th byte may only hold the top 3 bits of a non-negative int
+        int offset = 4;
+        int count = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (offset == compressed.length || shift > 28) throw new IOException("Bad character count");
+            int b = compressed[offset++];
+            if (shift == 28 && (b & 0xFF) > 0x07) throw new IOException("Bad character count");
+            count |= (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+
+        // Every character takes at least 1 bit, so a larger count can only come from a corrupt message
+        int payloadBytes = compressed.length - offset;
+        if (count < 0 || count > 8L * payloadBytes) throw new IOException("Bad character count " + count + " for " + payloadBytes + " payload bytes");
+        FastBitReader bitInput = new FastBitReader(new ByteArrayInputStream(compressed, offset, payloadBytes), 8L * payloadBytes, Math.max(8, Math.min(payloadBytes, 1 << 16)));
+        char[] chars = new char[count];
+        for (int i = 0; i < count; i++) {
+            int symbol = decoder.decodeSymbol(bitInput);
+            if (symbol < 0) throw new EOFException("Message ends after " + i + " of " + count + " characters");
+            chars[i] = (char)((symbol == ESCAPE) ? bitInput.readBits(16) : symbol);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * ID of the dictionary a message was compressed with, so the right one can be picked from several
+     *
+     * @param compressed
+     */
+    public static int messageId(byte[] compressed) throws IOException {
+        if (compressed.length < 5) throw new IOException("Message is too short");
+        return ((compressed[0] & 0xFF) << 24) | ((compressed[1] & 0xFF) << 16) | ((compressed[2] & 0xFF) << 8) | (compressed[3] & 0xFF);
+    }
+
+    /**
+     * Helper method for compress — 7 bits per byte, high bit set on all but the last byte
+     */
+    private static void writeVarInt(int value, OutputStream output) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+}
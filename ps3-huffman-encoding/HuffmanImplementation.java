@@ -1,5 +1,6 @@
 import java.util.*;
 import java.io.*;
+import java.nio.charset.Charset;
 
 /**
  * purpose: ps-3 huffman implementation
@@ -9,24 +10,30 @@ import java.io.*;
  */
 
 public class HuffmanImplementation implements Huffman {
-    public Map<Character, Long> countFrequencies(String pathName) throws IOException {
-        Map<Character, Long> frequencyTable = new TreeMap<Character, Long>();
+    public static final int LEVEL_HUFFMAN = 0;  // Plain huffman; levels above go through an LZ77 stage first (see LZ77Huffman)
 
-        // Reads file & loops over characters to make frequency table
-        BufferedReader input = new BufferedReader(new FileReader(pathName));
-        int n = 0;  // characters
-        while ((n = input.read()) != -1) {
-            char character = (char)n;
+    private final int level;
 
-            // Adds character to frequency table
-            if (frequencyTable.containsKey(character)) {
-                frequencyTable.put(character, (long)(frequencyTable.get(character) + 1));
-            } else {
-                frequencyTable.put(character, (long)1);
-            }
-        }
-        input.close();
-        return frequencyTable;
+    public HuffmanImplementation() {
+        this(LEVEL_HUFFMAN);
+    }
+
+    /**
+     * @param level LEVEL_HUFFMAN, or LZ77Huffman.LEVEL_RLE, LEVEL_FAST or LEVEL_BEST
+     */
+    public HuffmanImplementation(int level) {
+        if (level < LEVEL_HUFFMAN || level > LZ77Huffman.LEVEL_BEST) throw new IllegalArgumentException("Bad compression level " + level);
+        this.level = level;
+    }
+
+    public int getLevel() { return level; }
+
+    public Map<Character, Long> countFrequencies(String pathName) throws IOException {
+
+        // Memory-maps the file & counts into primitive arrays, decoded with the same charset as FileReader;
+        // only converted to a map at the end
+        long[] counts = FrequencyCounter.countChars(pathName, Charset.defaultCharset());
+        return FrequencyCounter.toMap(counts);
     }
 
     public BinaryTree<CodeTreeElement> makeCodeTree(Map<Character, Long> frequencies) {
@@ -153,12 +160,38 @@ public class HuffmanImplementation implements Huffman {
         bitOutput.close();
     }
 
+    /**
+     * Table-driven version of compressFile()
+     * Codes are looked up in a flat HuffmanCodeTable & packed into whole words by FastBitWriter,
+     * instead of one TreeMap lookup & one writeBit() call per bit
+     *
+     * @param codeMap
+     * @param pathName
+     * @param compressedPathName
+     * @throws IOException
+     */
+    public void compressFileFast(Map<Character, String> codeMap, String pathName, String compressedPathName) throws IOException {
+        HuffmanCodeTable codeTable = new HuffmanCodeTable(codeMap);
+        BufferedReader input = new BufferedReader(new FileReader(pathName));
+        FastBitWriter bitOutput = new FastBitWriter(compressedPathName);
+
+        // Reads a block of characters at a time & encodes the whole block
+        char[] buffer = new char[1 << 16];
+        int n = 0;  // characters read
+        while ((n = input.read(buffer)) != -1) {
+            codeTable.encode(buffer, 0, n, bitOutput);
+        }
+        input.close();
+        bitOutput.close();
+    }
+
     public void decompressFile(String compressedPathName, String decompressedPathName, BinaryTree<CodeTreeElement> codeTree) throws IOException {
         BufferedBitReader bitInput = new BufferedBitReader(compressedPathName);
         BufferedWriter output = new BufferedWriter(new FileWriter(decompressedPathName));
 
         // Keeps copy of original code tree
         BinaryTree<CodeTreeElement> original = codeTree;
+        boolean singleCharacter = (original != null && original.size() == 1);  // Checked once, not once per bit
 
         // Loops through all bits
         while (bitInput.hasNext()) {
@@ -166,7 +199,7 @@ public class HuffmanImplementation implements Huffman {
             if (codeTree != null) {
 
                 // Safety check: boundary chase of 1 character
-                if (original.size() == 1) {
+                if (singleCharacter) {
                     output.write(original.getData().getChar());
                 }
                 else {
@@ -189,13 +222,171 @@ public class HuffmanImplementation implements Huffman {
         output.close();
     }
 
+    /**
+     * Lookup-table version of decompressFile() for files written by compressFileFast()
+     * Most characters are decoded with a single HuffmanDecoder table probe
+     *
+     * @param compressedPathName
+     * @param decompressedPathName
+     * @param codeTree
+     * @throws IOException
+     */
+    public void decompressFileFast(String compressedPathName, String decompressedPathName, BinaryTree<CodeTreeElement> codeTree) throws IOException {
+        FastBitReader bitInput = new FastBitReader(compressedPathName);
+        BufferedWriter output = new BufferedWriter(new FileWriter(decompressedPathName));
+
+        // Safety check: boundary case of empty input file (no tree, nothing to decode)
+        if (codeTree != null) {
+            HuffmanDecoder decoder = new HuffmanDecoder(codeTree);
+            char[] buffer = new char[1 << 16];
+            int n = 0;  // characters decoded
+            while ((n = decoder.decode(bitInput, buffer, 0, buffer.length)) > 0) {
+                output.write(buffer, 0, n);
+            }
+        }
+        bitInput.close();
+        output.close();
+    }
+
+    /**
+     * Compresses with canonical codes & writes the code lengths as a header,
+     * so the file can be decompressed without the code tree
+     *
+     * @param pathName
+     * @param compressedPathName
+     * @throws IOException
+     */
+    public void compressFileCanonical(String pathName, String compressedPathName) throws IOException {
+        Map<Character, Long> frequencyTable = countFrequencies(pathName);
+        byte[] lengths = LengthLimitedHuffman.codeLengths(frequencyTable, HuffmanCodeTable.CHAR_SYMBOLS, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        HuffmanCodeTable codeTable = CanonicalHuffman.canonicalTable(lengths);
+
+        BufferedReader input = new BufferedReader(new FileReader(pathName));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compressedPathName)));
+        CanonicalHuffman.writeHeader(lengths, output);
+        FastBitWriter bitOutput = new FastBitWriter(output);
+
+        // Same block-at-a-time encoding as compressFileFast()
+        char[] buffer = new char[1 << 16];
+        int n = 0;  // characters read
+        while ((n = input.read(buffer)) != -1) {
+            codeTable.encode(buffer, 0, n, bitOutput);
+        }
+        input.close();
+        bitOutput.close();
+    }
+
+    /**
+     * Decompresses a file written by compressFileCanonical(), using only its header
+     *
+     * @param compressedPathName
+     * @param decompressedPathName
+     * @throws IOException
+     */
+    public void decompressFileCanonical(String compressedPathName, String decompressedPathName) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(compressedPathName)));
+        BufferedWriter output = new BufferedWriter(new FileWriter(decompressedPathName));
+
+        // Decoder setup is just filling arrays from the code lengths
+        byte[] lengths = CanonicalHuffman.readHeader(input, HuffmanCodeTable.CHAR_SYMBOLS);
+        HuffmanDecoder decoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(lengths));
+        FastBitReader bitInput = new FastBitReader(input);
+
+        char[] buffer = new char[1 << 16];
+        int n = 0;  // characters decoded
+        while ((n = decoder.decode(bitInput, buffer, 0, buffer.length)) > 0) {
+            output.write(buffer, 0, n);
+        }
+        bitInput.close();
+        output.close();
+    }
+
+    /**
+     * Compresses over raw bytes or unicode code points instead of chars (see AlphabetHuffman)
+     *
+     * @param pathName
+     * @param compressedPathName
+     * @param alphabet
+     * @param charset used to read the text in CODE_POINTS mode (ignored for BYTES)
+     * @throws IOException
+     */
+    public void compressFileAlphabet(String pathName, String compressedPathName, AlphabetHuffman.Alphabet alphabet, Charset charset) throws IOException {
+        new AlphabetHuffman(alphabet, charset).compressFile(pathName, compressedPathName);
+    }
+
+    /**
+     * Decompresses a file written by compressFileAlphabet(); the alphabet is read from its header
+     *
+     * @param compressedPathName
+     * @param decompressedPathName
+     * @param charset used to write the text in CODE_POINTS mode (ignored for BYTES)
+     * @throws IOException
+     */
+    public void decompressFileAlphabet(String compressedPathName, String decompressedPathName, Charset charset) throws IOException {
+        AlphabetHuffman.decompressFile(compressedPathName, decompressedPathName, charset);
+    }
+
     // Concise version of functions to avoid too many lines of code in main method:
     public void compressAndDecompress(String pathName, String compressedPathName, String decompressedPathName) throws IOException {
+
+        // Higher compression levels parse the text into LZ77 tokens before the huffman stage
+        if (level != LEVEL_HUFFMAN) {
+            LZ77Huffman lz = new LZ77Huffman(level);
+            lz.compressFile(pathName, compressedPathName);
+            lz.decompressFile(compressedPathName, decompressedPathName);
+            return;
+        }
         Map<Character, Long> frequencyTable = countFrequencies(pathName);
         BinaryTree<CodeTreeElement> codeTree = makeCodeTree(frequencyTable);
         Map<Character, String> codeMap = computeCodes(codeTree);
-        compressFile(codeMap, pathName, compressedPathName);
-        decompressFile(compressedPathName, decompressedPathName, codeTree);
+        compressFileFast(codeMap, pathName, compressedPathName);
+        decompressFileFast(compressedPathName, decompressedPathName, codeTree);
+    }
+
+    /**
+     * Block-mode version of compressAndDecompress(): input is read once & all blocks are
+     * counted, encoded & decoded in parallel (see HuffmanBlockCompressor)
+     *
+     * @param pathName
+     * @param compressedPathName
+     * @param decompressedPathName
+     * @throws IOException
+     */
+    public void compressAndDecompressParallel(String pathName, String compressedPathName, String decompressedPathName) throws IOException {
+        HuffmanBlockCompressor blocks = new HuffmanBlockCompressor();
+        blocks.compressFile(pathName, compressedPathName);
+        blocks.decompressFile(compressedPathName, decompressedPathName);
+    }
+
+    /**
+     * Pipelined version of compressAndDecompress(): reading, coding & writing overlap on separate threads
+     * (see HuffmanPipeline), producing the same compressed file
+     *
+     * @param pathName
+     * @param compressedPathName
+     * @param decompressedPathName
+     * @throws IOException
+     */
+    public void compressAndDecompressPipelined(String pathName, String compressedPathName, String decompressedPathName) throws IOException {
+        Map<Character, Long> frequencyTable = countFrequencies(pathName);
+        BinaryTree<CodeTreeElement> codeTree = makeCodeTree(frequencyTable);
+        Map<Character, String> codeMap = computeCodes(codeTree);
+        HuffmanPipeline pipeline = new HuffmanPipeline();
+        pipeline.compressFile(codeMap, pathName, compressedPathName);
+        pipeline.decompressFile(compressedPathName, decompressedPathName, codeTree);
+    }
+
+    /**
+     * Decodes only characters [fromChar, fromChar + length) of a file written by HuffmanSeekableFile.compressFile()
+     *
+     * @param compressedPathName
+     * @param fromChar
+     * @param length
+     * @return decoded characters
+     * @throws IOException
+     */
+    public String decompressRange(String compressedPathName, long fromChar, int length) throws IOException {
+        return HuffmanSeekableFile.decompressRange(compressedPathName, fromChar, length);
     }
 
     public static void main(String[] args) throws IOException {
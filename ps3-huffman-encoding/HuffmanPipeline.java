@@ -0,0 +1,298 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * purpose: pipelined versions of compressFileFast() & decompressFileFast()
+ * Reading, huffman coding & writing overlap instead of running one after another:
+ *  - a reader thread fills direct ByteBuffers from a FileChannel & hands them over through a bounded queue
+ *  - the calling thread decodes the text, encodes (or decodes) it & fills output buffers
+ *  - full output buffers are written with AsynchronousFileChannel while the next ones are being filled
+ * Buffers go back to a free queue once used, so each stage works on at most bufferCount buffers
+ * & a fast stage waits for a slow one instead of piling up data.
+ *
+ * Files are the same as compressFileFast() writes, so either version can read the other's output.
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanPipeline {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final int DEFAULT_BUFFER_COUNT = 4;     // Buffers per stage
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);     // Reader's end-of-file marker
+
+    private final int bufferSize;
+    private final int bufferCount;
+    private final Charset charset;
+
+    public HuffmanPipeline() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT, Charset.defaultCharset());
+    }
+
+    /**
+     * @param bufferSize bytes per buffer
+     * @param bufferCount buffers between two stages (at least 2, so one can be filled while one is used)
+     * @param charset of the uncompressed text (FileReader & FileWriter use the default charset)
+     */
+    public HuffmanPipeline(int bufferSize, int bufferCount, Charset charset) {
+        if (bufferSize < 4) throw new IllegalArgumentException("Buffers must hold at least 4 bytes");
+        if (bufferCount < 2) throw new IllegalArgumentException("At least 2 buffers are needed per stage");
+        this.bufferSize = bufferSize;
+        this.bufferCount = bufferCount;
+        this.charset = charset;
+    }
+
+    /**
+     * Pipelined compressFileFast()
+     *
+     * @param codeMap
+     * @param pathName
+     * @param compressedPathName
+     */
+    public void compressFile(Map<Character, String> codeMap, String pathName, String compressedPathName) throws IOException {
+        HuffmanCodeTable codeTable = new HuffmanCodeTable(codeMap);
+        ReadStage reader = new ReadStage(pathName);
+        FutureTask<Void> readTask = reader.start();
+        AsyncFileOutputStream output = null;
+        try {
+            Reader input = new InputStreamReader(reader.stream(), charset);
+            output = new AsyncFileOutputStream(compressedPathName);
+            FastBitWriter bitOutput = new FastBitWriter(output);
+
+            char[] chars = new char[bufferSize];
+            int n = 0;  // characters read
+            while ((n = input.read(chars)) != -1) {
+                codeTable.encode(chars, 0, n, bitOutput);
+            }
+            bitOutput.close();
+            finish(readTask);
+        } finally {
+            readTask.cancel(true);
+            if (output != null) output.abort();
+        }
+    }
+
+    /**
+     * Pipelined decompressFileFast()
+     *
+     * @param compressedPathName
+     * @param decompressedPathName
+     * @param codeTree
+     */
+    public void decompressFile(String compressedPathName, String decompressedPathName, BinaryTree<CodeTreeElement> codeTree) throws IOException {
+        ReadStage reader = new ReadStage(compressedPathName);
+        FutureTask<Void> readTask = reader.start();
+        AsyncFileOutputStream file = null;
+        try {
+            FastBitReader bitInput = new FastBitReader(reader.stream());
+            file = new AsyncFileOutputStream(decompressedPathName);
+            Writer output = new OutputStreamWriter(file, charset);
+
+            // Safety check: boundary case of empty input file (no tree, nothing to decode)
+            if (codeTree != null) {
+                HuffmanDecoder decoder = new HuffmanDecoder(codeTree);
+                char[] chars = new char[bufferSize];
+                int n = 0;  // characters decoded
+                while ((n = decoder.decode(bitInput, chars, 0, chars.length)) > 0) {
+                    output.write(chars, 0, n);
+                }
+            }
+            output.close();
+            finish(readTask);
+        } finally {
+            readTask.cancel(true);
+            if (file != null) file.abort();
+        }
+    }
+
+    /**
+     * Helper method — waits for the reader thread & rethrows anything it failed with
+     */
+    private static void finish(FutureTask<Void> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reader");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+            throw new IOException("Reader failed", e.getCause());
+        }
+    }
+
+    /**
+     * Reader stage: fills free buffers from the file & queues them, then queues END
+     */
+    private class ReadStage implements Callable<Void> {
+        private final String pathName;
+        private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(bufferCount);
+        private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<ByteBuffer>(bufferCount + 1);
+
+        ReadStage(String pathName) {
+            this.pathName = pathName;
+            for (int i = 0; i < bufferCount; i++) free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+
+        FutureTask<Void> start() {
+            FutureTask<Void> task = new FutureTask<Void>(this);
+            Thread thread = new Thread(task, "huffman-reader");
+            thread.setDaemon(true);
+            thread.start();
+            return task;
+        }
+
+        public Void call() throws Exception {
+            FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ);
+            try {
+                while (true) {
+                    ByteBuffer buffer = free.take();
+                    buffer.clear();
+                    if (channel.read(buffer) == -1) break;
+                    buffer.flip();
+                    filled.put(buffer);
+                }
+            } finally {
+                channel.close();
+                filled.put(END);    // Room is always left for it, so this never blocks
+            }
+            return null;
+        }
+
+        /**
+         * Consumer side of the queue as a stream; buffers are recycled once read
+         */
+        InputStream stream() {
+            return new InputStream() {
+                private ByteBuffer current = null;
+                private boolean ended = false;
+
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+                }
+
+                public int read(byte[] b, int offset, int length) throws IOException {
+                    if (length == 0) return 0;
+                    while (current == null || !current.hasRemaining()) {
+                        if (ended) return -1;
+                        if (current != null) free.add(current);
+                        try {
+                            current = filled.take();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while waiting for input");
+                        }
+                        if (current == END) {
+                            current = null;
+                            ended = true;
+                        }
+                    }
+                    int n = Math.min(length, current.remaining());
+                    current.get(b, offset, n);
+                    return n;
+                }
+            };
+        }
+    }
+
+    /**
+     * Writer stage: full buffers are written asynchronously at increasing file positions;
+     * once all buffers are in flight, the oldest write is waited for & its buffer reused
+     */
+    private class AsyncFileOutputStream extends OutputStream {
+        private final AsynchronousFileChannel channel;
+        private final Deque<ByteBuffer> inFlight = new ArrayDeque<ByteBuffer>();
+        private final Deque<Future<Integer>> writes = new ArrayDeque<Future<Integer>>();
+        private final Deque<Long> positions = new ArrayDeque<Long>();
+        private ByteBuffer current = ByteBuffer.allocateDirect(bufferSize);
+        private int allocated = 1;
+        private long position = 0;     // File position of current
+
+        AsyncFileOutputStream(String pathName) throws IOException {
+            channel = AsynchronousFileChannel.open(Paths.get(pathName),
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        public void write(int b) throws IOException {
+            if (!current.hasRemaining()) submit();
+            current.put((byte)b);
+        }
+
+        public void write(byte[] b, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!current.hasRemaining()) submit();
+                int n = Math.min(length, current.remaining());
+                current.put(b, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        public void close() throws IOException {
+            if (!channel.isOpen()) return;
+            try {
+                if (current.position() > 0) submit();
+                while (!writes.isEmpty()) complete();
+            } finally {
+                channel.close();
+            }
+        }
+
+        /**
+         * Closes the file without flushing, after a failure; does nothing once close() has run
+         */
+        void abort() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the failure that led here is the one to report
+            }
+        }
+
+        /**
+         * Helper method — starts writing current & gets the next buffer to fill
+         */
+        private void submit() throws IOException {
+            current.flip();
+            inFlight.add(current);
+            positions.add(position);
+            writes.add(channel.write(current, position));
+            position += current.limit();
+
+            if (allocated < bufferCount) {
+                current = ByteBuffer.allocateDirect(bufferSize);
+                allocated++;
+            } else {
+                current = complete();
+            }
+            current.clear();
+        }
+
+        /**
+         * Helper method — waits for the oldest write, finishing it if only part was written
+         *
+         * @return its buffer, free again
+         */
+        private ByteBuffer complete() throws IOException {
+            ByteBuffer buffer = inFlight.remove();
+            long start = positions.remove();
+            try {
+                writes.remove().get();
+                while (buffer.hasRemaining()) channel.write(buffer, start + buffer.position()).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+                throw new IOException("Write failed", e.getCause());
+            }
+            return buffer;
+        }
+    }
+}
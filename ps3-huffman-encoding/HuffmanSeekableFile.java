@@ -0,0 +1,224 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * purpose: seekable huffman container for random-access decompression
+ * One canonical huffman bit stream plus sync points every N characters (bit offset & character offset),
+ * so a range of characters is decoded starting from the nearest sync point instead of from bit 0
+ *
+ * File layout: canonical header (see CanonicalHuffman), payload bits (padded to a byte),
+ * index: data start (8 bytes), total characters (8), total bits (8), sync point count (4),
+ * then (character offset, bit offset) per sync point (8 + 8), and finally the index position (8)
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanSeekableFile implements Closeable {
+    public static final int DEFAULT_SYNC_INTERVAL = 1 << 16;   // Characters between sync points
+
+    private final FileChannel channel;
+    private final HuffmanDecoder decoder;   // No per-call state, shared by all reads
+    private final long dataStart;
+    private final long totalChars;
+    private final long totalBits;
+    private final long[] syncChars;         // Character offset of each sync point
+    private final long[] syncBits;          // Bit offset of each sync point
+
+    /**
+     * Opens a file written by compressFile() & reads its header & sync index
+     *
+     * @param compressedPathName
+     */
+    public HuffmanSeekableFile(String compressedPathName) throws IOException {
+        channel = FileChannel.open(Paths.get(compressedPathName), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 8) throw new IOException(compressedPathName + " is too short for a seekable huffman file");
+
+            // Code lengths are at the start of the file
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(readBytes(0, (int)Math.min(size, 3L * HuffmanCodeTable.CHAR_SYMBOLS + 6))));
+            decoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(CanonicalHuffman.readHeader(header, HuffmanCodeTable.CHAR_SYMBOLS)));
+
+            // Sync index is at the end, found through the last 8 bytes
+            long indexPosition = ByteBuffer.wrap(readBytes(size - 8, 8)).getLong();
+            if (indexPosition < 0 || indexPosition > size - 8 || size - 8 - indexPosition > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt sync index position " + indexPosition + " in a file of " + size + " bytes");
+            }
+            int indexSize = (int)(size - 8 - indexPosition);
+            DataInputStream index = new DataInputStream(new ByteArrayInputStream(readBytes(indexPosition, indexSize)));
+            dataStart = index.readLong();
+            totalChars = index.readLong();
+            totalBits = index.readLong();
+            int syncCount = index.readInt();
+            if (syncCount < 0 || 16L * syncCount > indexSize - 28) throw new IOException("Corrupt sync point count " + syncCount);
+            syncChars = new long[syncCount];
+            syncBits = new long[syncCount];
+            for (int i = 0; i < syncCount; i++) {
+                syncChars[i] = index.readLong();
+                syncBits[i] = index.readLong();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compresses a file into the seekable layout
+     *
+     * @param pathName
+     * @param compressedPathName
+     * @param syncInterval characters between sync points
+     */
+    public static void compressFile(String pathName, String compressedPathName, int syncInterval) throws IOException {
+        if (syncInterval <= 0) throw new IllegalArgumentException("Sync interval must be positive");
+        Map<Character, Long> frequencyTable = new HuffmanImplementation().countFrequencies(pathName);
+        byte[] lengths = LengthLimitedHuffman.codeLengths(frequencyTable, HuffmanCodeTable.CHAR_SYMBOLS, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        HuffmanCodeTable codeTable = CanonicalHuffman.canonicalTable(lengths);
+
+        // Header goes through a counting stream so the payload's start offset is known
+        CountingOutputStream file = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(compressedPathName)));
+        DataOutputStream output = new DataOutputStream(file);
+        CanonicalHuffman.writeHeader(lengths, output);
+        output.flush();
+        long dataStart = file.getCount();
+
+        // Encodes the input, cutting each buffer at sync point boundaries
+        FastBitWriter bitOutput = new FastBitWriter(file, false);
+        List<long[]> syncPoints = new ArrayList<long[]>();
+        BufferedReader input = new BufferedReader(new FileReader(pathName));
+        char[] buffer = new char[1 << 16];
+        long chars = 0;
+        int n = 0;  // characters read
+        while ((n = input.read(buffer)) != -1) {
+            int offset = 0;
+            while (offset < n) {
+                if (chars % syncInterval == 0) syncPoints.add(new long[] {chars, bitOutput.getBitCount()});
+                int count = (int)Math.min(n - offset, syncInterval - chars % syncInterval);
+                codeTable.encode(buffer, offset, count, bitOutput);
+                offset += count;
+                chars += count;
+            }
+        }
+        input.close();
+        long totalBits = bitOutput.getBitCount();
+        bitOutput.finish();
+
+        // Index & its position
+        long indexPosition = file.getCount();
+        output.writeLong(dataStart);
+        output.writeLong(chars);
+        output.writeLong(totalBits);
+        output.writeInt(syncPoints.size());
+        for (long[] syncPoint : syncPoints) {
+            output.writeLong(syncPoint[0]);
+            output.writeLong(syncPoint[1]);
+        }
+        output.writeLong(indexPosition);
+        output.close();
+    }
+
+    public static void compressFile(String pathName, String compressedPathName) throws IOException {
+        compressFile(pathName, compressedPathName, DEFAULT_SYNC_INTERVAL);
+    }
+
+    /**
+     * Decodes characters [fromChar, fromChar + length), only touching the sync blocks that overlap the range
+     *
+     * @param fromChar
+     * @param length
+     * @return decoded characters (shorter than length if the range runs past the end of the file)
+     */
+    public String decompressRange(long fromChar, int length) throws IOException {
+        if (fromChar < 0 || length < 0) throw new IllegalArgumentException("Negative range");
+        if (fromChar >= totalChars || length == 0) return "";
+        long toChar = Math.min(fromChar + length, totalChars);
+
+        // Nearest sync point at or before fromChar, & first sync point at or after toChar
+        int first = Arrays.binarySearch(syncChars, fromChar);
+        if (first < 0) first = -first - 2;
+        int last = Arrays.binarySearch(syncChars, toChar);
+        if (last < 0) last = -last - 1;
+        long startBit = syncBits[first];
+        long endBit = last < syncBits.length ? syncBits[last] : totalBits;
+
+        // Reads just the bytes covering those bits
+        long startByte = startBit / 8;
+        long endByte = (endBit + 7) / 8;
+        FastBitReader bitInput = new FastBitReader(new ByteArrayInputStream(readBytes(dataStart + startByte, (int)(endByte - startByte))), endBit - 8 * startByte);
+        if (startBit % 8 != 0) bitInput.readBits((int)(startBit % 8));
+
+        // Skips from the sync point to fromChar, then keeps the requested characters
+        for (long i = syncChars[first]; i < fromChar; i++) {
+            if (decoder.decodeSymbol(bitInput) < 0) throw new EOFException("Sync point is past the end of the data");
+        }
+        char[] chars = new char[(int)(toChar - fromChar)];
+        int n = decoder.decode(bitInput, chars, 0, chars.length);
+        if (n != chars.length) throw new EOFException("Compressed data ends before character " + toChar);
+        return new String(chars);
+    }
+
+    /**
+     * Opens the file, decodes one range & closes it again
+     *
+     * @param compressedPathName
+     * @param fromChar
+     * @param length
+     * @return decoded characters
+     */
+    public static String decompressRange(String compressedPathName, long fromChar, int length) throws IOException {
+        HuffmanSeekableFile file = new HuffmanSeekableFile(compressedPathName);
+        try {
+            return file.decompressRange(fromChar, length);
+        } finally {
+            file.close();
+        }
+    }
+
+    public long length() { return totalChars; }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Positional read, safe to call from several threads at once
+     *
+     * @param position
+     * @param count
+     * @return bytes [position, position + count) of the file
+     */
+    private byte[] readBytes(long position, int count) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(count);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) == -1) throw new EOFException("Unexpected end of file");
+        }
+        return bytes.array();
+    }
+
+    /**
+     * Output stream that keeps track of how many bytes went through it
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        public void write(byte[] b, int offset, int length) throws IOException {
+            out.write(b, offset, length);
+            count += length;
+        }
+
+        long getCount() { return count; }
+    }
+}
@@ -0,0 +1,160 @@
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * purpose: streaming huffman compression over InputStream/OutputStream & NIO channels
+ * Works on fixed-size buffers & never re-reads its input, so it can compress network payloads or pipes.
+ * The code comes either from a supplied frequency table or from a bounded sample at the start of the input.
+ *
+ * Output is a canonical header (see CanonicalHuffman) followed by FastBitWriter bits. Characters the code
+ * has no entry for (e.g. ones missing from the sample) are written as ESCAPE followed by their 16 raw bits.
+ * Streams passed in are flushed but not closed; compressed data is read up to the end of its input stream.
+ *
+ * 17 oct. 26
+ */
+
+public class HuffmanStreams {
+    public static final char ESCAPE = '\uFFFF';                 // Noncharacter, always escaped itself
+    public static final int DEFAULT_SAMPLE_SIZE = 1 << 20;      // Characters counted before encoding starts
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Charset charset;
+
+    public HuffmanStreams() {
+        this(Charset.defaultCharset());     // Same as FileReader/FileWriter in HuffmanImplementation
+    }
+
+    public HuffmanStreams(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Compresses using a supplied frequency table (e.g. from an earlier pass or a similar input)
+     *
+     * @param input
+     * @param output
+     * @param frequencies
+     */
+    public void compress(InputStream input, OutputStream output, Map<Character, Long> frequencies) throws IOException {
+        Reader chars = new InputStreamReader(input, charset);
+        compress(chars, new char[BUFFER_SIZE], 0, output, frequencies);
+    }
+
+    /**
+     * Compresses using frequencies from the first sampleSize characters, which are held in memory
+     * while the code is built; the rest of the input is encoded as it is read
+     *
+     * @param input
+     * @param output
+     * @param sampleSize
+     */
+    public void compress(InputStream input, OutputStream output, int sampleSize) throws IOException {
+        Reader chars = new InputStreamReader(input, charset);
+
+        // Fills the sample buffer (or reads the whole input, if shorter)
+        char[] sample = new char[Math.max(sampleSize, BUFFER_SIZE)];
+        int sampled = 0;
+        int n = 0;  // characters read
+        while (sampled < sampleSize && (n = chars.read(sample, sampled, sampleSize - sampled)) != -1) {
+            sampled += n;
+        }
+
+        long[] counts = new long[HuffmanCodeTable.CHAR_SYMBOLS];
+        for (int i = 0; i < sampled; i++) counts[sample[i]]++;
+        compress(chars, sample, sampled, output, FrequencyCounter.toMap(counts));
+    }
+
+    public void compress(InputStream input, OutputStream output) throws IOException {
+        compress(input, output, DEFAULT_SAMPLE_SIZE);
+    }
+
+    public void compress(ReadableByteChannel input, WritableByteChannel output, Map<Character, Long> frequencies) throws IOException {
+        compress(Channels.newInputStream(input), Channels.newOutputStream(output), frequencies);
+    }
+
+    public void compress(ReadableByteChannel input, WritableByteChannel output, int sampleSize) throws IOException {
+        compress(Channels.newInputStream(input), Channels.newOutputStream(output), sampleSize);
+    }
+
+    /**
+     * Decompresses anything written by the compress methods; the header carries the code
+     *
+     * @param input
+     * @param output
+     */
+    public void decompress(InputStream input, OutputStream output) throws IOException {
+        DataInputStream bytes = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        HuffmanDecoder decoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(CanonicalHuffman.readHeader(bytes, HuffmanCodeTable.CHAR_SYMBOLS)));
+        FastBitReader bitInput = new FastBitReader(bytes);
+        Writer chars = new OutputStreamWriter(output, charset);
+
+        char[] buffer = new char[BUFFER_SIZE];
+        int n = 0;
+        int symbol = 0;
+        while ((symbol = decoder.decodeSymbol(bitInput)) >= 0) {
+            if (symbol == ESCAPE) symbol = bitInput.readBits(16);
+            buffer[n++] = (char)symbol;
+            if (n == BUFFER_SIZE) {
+                chars.write(buffer, 0, n);
+                n = 0;
+            }
+        }
+        chars.write(buffer, 0, n);
+        chars.flush();
+    }
+
+    public void decompress(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        decompress(Channels.newInputStream(input), Channels.newOutputStream(output));
+    }
+
+    /**
+     * Helper method for the compress methods — builds the code, writes the header,
+     * then encodes the buffered characters followed by the rest of the input
+     *
+     * @param chars input after the buffered characters
+     * @param buffer buffered characters, reused for reading the rest of the input
+     * @param buffered number of buffered characters
+     * @param output
+     * @param frequencies
+     */
+    private void compress(Reader chars, char[] buffer, int buffered, OutputStream output, Map<Character, Long> frequencies) throws IOException {
+
+        // Escape always gets a code, so any character can be written
+        Map<Character, Long> withEscape = new TreeMap<Character, Long>(frequencies);
+        withEscape.put(ESCAPE, 1L);
+        byte[] lengths = LengthLimitedHuffman.codeLengths(withEscape, HuffmanCodeTable.CHAR_SYMBOLS, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        HuffmanCodeTable codeTable = CanonicalHuffman.canonicalTable(lengths);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        CanonicalHuffman.writeHeader(lengths, new DataOutputStream(header));
+        header.writeTo(output);
+
+        FastBitWriter bitOutput = new FastBitWriter(output);
+        int n = buffered;
+        do {
+            encode(codeTable, buffer, n, bitOutput);
+        } while ((n = chars.read(buffer, 0, buffer.length)) != -1);
+        bitOutput.finish();
+    }
+
+    /**
+     * Helper method for compress — encodes chars[0, count), escaping characters without a code
+     */
+    private static void encode(HuffmanCodeTable codeTable, char[] chars, int count, FastBitWriter bitOutput) throws IOException {
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            char c = chars[i];
+            if (c == ESCAPE || codeTable.getLength(c) == 0) {
+
+                // Encodes the run before this character in one call, then the escape
+                codeTable.encode(chars, start, i - start, bitOutput);
+                codeTable.encode(ESCAPE, bitOutput);
+                bitOutput.writeBits(c, 16);
+                start = i + 1;
+            }
+        }
+        codeTable.encode(chars, start, count - start, bitOutput);
+    }
+}
@@ -0,0 +1,401 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * purpose: huffman compression with an LZ77 front end for repetitive inputs
+ * The text is first parsed into literals & (length, distance) back-references within a 32K-character window,
+ * found with hash chains (or just runs of the previous character at LEVEL_RLE). Two codes are then built
+ * from the token frequencies, as in deflate: one over literals & match lengths together (0-65535 = literal char,
+ * 65536-65564 = match length bucket), so a literal needs no separate command code, & one over distance buckets.
+ * Length & distance buckets are followed by raw extra bits. Matches that cost more than their chars as literals
+ * are dropped, & if the matches still don't pay for themselves the file holds literals only, which is
+ * plain huffman plus a small header.
+ *
+ * File layout: magic (2 bytes), level (1 byte), token count (8 bytes), canonical headers (see CanonicalHuffman)
+ * for the literal part & the length part of the literal/length code, then for the distance code,
+ * then payload bits with trailer
+ *
+ * 17 oct. 26
+ */
+
+public class LZ77Huffman {
+    public static final int MAGIC = 0x484C;             // "HL"
+    public static final int LEVEL_RLE = 1;              // Runs of the previous character only
+    public static final int LEVEL_FAST = 2;             // Short hash chains, greedy matching
+    public static final int LEVEL_BEST = 3;             // Long hash chains, lazy matching
+    public static final int WINDOW_SIZE = 1 << 15;
+    public static final int MIN_MATCH = 3, MAX_MATCH = 258;
+
+    private static final int LENGTH_SYMBOLS = 29, DISTANCE_SYMBOLS = 30;
+    private static final int LITERAL_LENGTH_SYMBOLS = HuffmanCodeTable.CHAR_SYMBOLS + LENGTH_SYMBOLS;  // Literals, then length buckets
+    private static final int MATCH_FLAG = 1 << 30;      // Tokens: literal char, or MATCH_FLAG | length << 16 | (distance - 1)
+    private static final int HASH_BITS = 15;
+
+    // Match length & distance buckets (deflate's): base value & number of extra bits
+    private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+    private static final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+    private static final int[] DISTANCE_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+    private static final int[] DISTANCE_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+    private static final int[] LENGTH_SYMBOL = new int[MAX_MATCH + 1];    // Bucket per match length
+
+    static {
+        for (int bucket = 0; bucket < LENGTH_BASE.length; bucket++) {
+            for (int length = LENGTH_BASE[bucket]; length < LENGTH_BASE[bucket] + (1 << LENGTH_EXTRA[bucket]) && length <= MAX_MATCH; length++) {
+                LENGTH_SYMBOL[length] = bucket;
+            }
+        }
+    }
+
+    private final int level;
+
+    public LZ77Huffman(int level) {
+        if (level < LEVEL_RLE || level > LEVEL_BEST) throw new IllegalArgumentException("Bad compression level " + level);
+        this.level = level;
+    }
+
+    public int getLevel() { return level; }
+
+    /**
+     * Parses, then compresses a file
+     *
+     * @param pathName
+     * @param compressedPathName
+     */
+    public void compressFile(String pathName, String compressedPathName) throws IOException {
+        char[] chars = HuffmanBlockCompressor.readAllChars(pathName).toCharArray();
+        int[] tokens = parse(chars);
+
+        // Plain huffman code of the text, as if every char were a literal: the price of leaving a match out
+        long[] literalCounts = new long[LITERAL_LENGTH_SYMBOLS];
+        for (char c : chars) literalCounts[c]++;
+        byte[] literalOnlyLengths = LengthLimitedHuffman.codeLengths(literalCounts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+
+        long[] literalLengthCounts = new long[LITERAL_LENGTH_SYMBOLS];
+        long[] distanceCounts = new long[DISTANCE_SYMBOLS];
+        countTokens(tokens, literalLengthCounts, distanceCounts);
+        byte[] literalLengthLengths = LengthLimitedHuffman.codeLengths(literalLengthCounts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+        byte[] distanceLengths = LengthLimitedHuffman.codeLengths(distanceCounts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+
+        // Matches that cost more bits than their chars as literals (short or far ones, in noisy text) are dropped & the codes rebuilt
+        if (level != LEVEL_RLE) {
+            int[] cheaper = dropExpensiveMatches(tokens, chars, literalOnlyLengths, literalLengthLengths, distanceLengths);
+            if (cheaper != tokens) {
+                tokens = cheaper;
+                Arrays.fill(literalLengthCounts, 0);
+                Arrays.fill(distanceCounts, 0);
+                countTokens(tokens, literalLengthCounts, distanceCounts);
+                literalLengthLengths = LengthLimitedHuffman.codeLengths(literalLengthCounts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+                distanceLengths = LengthLimitedHuffman.codeLengths(distanceCounts, LengthLimitedHuffman.DEFAULT_MAX_LENGTH);
+            }
+        }
+
+        // Literals only (plain huffman in this format) when the matches still don't pay for themselves
+        long literalOnlyBits = 0;
+        for (int c = 0; c < HuffmanCodeTable.CHAR_SYMBOLS; c++) literalOnlyBits += literalCounts[c] * literalOnlyLengths[c];
+        if (tokens.length < chars.length && tokenBits(tokens, literalLengthLengths, distanceLengths) > literalOnlyBits) {
+            tokens = new int[chars.length];
+            for (int i = 0; i < chars.length; i++) tokens[i] = chars[i];
+            literalLengthLengths = literalOnlyLengths;
+            distanceLengths = new byte[DISTANCE_SYMBOLS];
+        }
+        HuffmanCodeTable literalLengthTable = CanonicalHuffman.canonicalTable(literalLengthLengths);
+        HuffmanCodeTable distanceTable = CanonicalHuffman.canonicalTable(distanceLengths);
+
+        // Header entries hold chars, so the literal/length code's lengths are written in two parts
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compressedPathName)));
+        output.writeShort(MAGIC);
+        output.writeByte(level);
+        output.writeLong(tokens.length);
+        CanonicalHuffman.writeHeader(Arrays.copyOf(literalLengthLengths, HuffmanCodeTable.CHAR_SYMBOLS), output);
+        CanonicalHuffman.writeHeader(Arrays.copyOfRange(literalLengthLengths, HuffmanCodeTable.CHAR_SYMBOLS, LITERAL_LENGTH_SYMBOLS), output);
+        CanonicalHuffman.writeHeader(distanceLengths, output);
+
+        FastBitWriter bitOutput = new FastBitWriter(output);
+        for (int token : tokens) {
+            if (token < MATCH_FLAG) {
+                literalLengthTable.encode(token, bitOutput);
+            } else {
+                int length = (token >>> 16) & 0x1FF;
+                int distance = (token & 0xFFFF) + 1;
+                int lengthBucket = LENGTH_SYMBOL[length];
+                int distanceBucket = distanceSymbol(distance);
+                literalLengthTable.encode(HuffmanCodeTable.CHAR_SYMBOLS + lengthBucket, bitOutput);
+                if (LENGTH_EXTRA[lengthBucket] > 0) bitOutput.writeBits(length - LENGTH_BASE[lengthBucket], LENGTH_EXTRA[lengthBucket]);
+                distanceTable.encode(distanceBucket, bitOutput);
+                if (DISTANCE_EXTRA[distanceBucket] > 0) bitOutput.writeBits(distance - DISTANCE_BASE[distanceBucket], DISTANCE_EXTRA[distanceBucket]);
+            }
+        }
+        bitOutput.close();
+    }
+
+    /**
+     * Decompresses a file written by compressFile()
+     *
+     * @param compressedPathName
+     * @param decompressedPathName
+     */
+    public void decompressFile(String compressedPathName, String decompressedPathName) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(compressedPathName)));
+        if (input.readUnsignedShort() != MAGIC) throw new IOException("Not an LZ77 huffman file");
+        input.readUnsignedByte();   // Level only matters when compressing
+        long tokenCount = input.readLong();
+        byte[] literalLengthLengths = Arrays.copyOf(CanonicalHuffman.readHeader(input, HuffmanCodeTable.CHAR_SYMBOLS), LITERAL_LENGTH_SYMBOLS);
+        System.arraycopy(CanonicalHuffman.readHeader(input, LENGTH_SYMBOLS), 0, literalLengthLengths, HuffmanCodeTable.CHAR_SYMBOLS, LENGTH_SYMBOLS);
+        HuffmanDecoder literalLengthDecoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(literalLengthLengths));
+        HuffmanDecoder distanceDecoder = new HuffmanDecoder(CanonicalHuffman.canonicalTable(CanonicalHuffman.readHeader(input, DISTANCE_SYMBOLS)));
+        FastBitReader bitInput = new FastBitReader(input);
+        BufferedWriter output = new BufferedWriter(new FileWriter(decompressedPathName));
+
+        // Decoded text stays in the buffer until it's out of the window
+        char[] window = new char[2 * WINDOW_SIZE + MAX_MATCH];
+        int position = 0;
+        for (long t = 0; t < tokenCount; t++) {
+            if (position >= 2 * WINDOW_SIZE) {
+                output.write(window, 0, position - WINDOW_SIZE);
+                System.arraycopy(window, position - WINDOW_SIZE, window, 0, WINDOW_SIZE);
+                position = WINDOW_SIZE;
+            }
+
+            int symbol = literalLengthDecoder.decodeSymbol(bitInput);
+            if (symbol < 0) throw new EOFException("Compressed data ends before token " + t);
+            if (symbol < HuffmanCodeTable.CHAR_SYMBOLS) {
+                window[position++] = (char)symbol;
+            } else {
+                int lengthBucket = symbol - HuffmanCodeTable.CHAR_SYMBOLS;
+                int length = LENGTH_BASE[lengthBucket] + (LENGTH_EXTRA[lengthBucket] > 0 ? bitInput.readBits(LENGTH_EXTRA[lengthBucket]) : 0);
+                int distanceBucket = distanceDecoder.decodeSymbol(bitInput);
+                if (distanceBucket < 0) throw new EOFException("Compressed data ends inside a match");
+                int distance = DISTANCE_BASE[distanceBucket] + (DISTANCE_EXTRA[distanceBucket] > 0 ? bitInput.readBits(DISTANCE_EXTRA[distanceBucket]) : 0);
+                if (distance > position || length > MAX_MATCH) throw new IOException("Bad match at token " + t);
+
+                // Copies one char at a time, since a match may overlap the text it creates (runs)
+                for (int i = 0; i < length; i++, position++) window[position] = window[position - distance];
+            }
+        }
+        output.write(window, 0, position);
+        bitInput.close();
+        output.close();
+    }
+
+    /**
+     * Helper method for compressFile — adds the tokens' symbols to the literal/length & distance counts
+     */
+    private static void countTokens(int[] tokens, long[] literalLengthCounts, long[] distanceCounts) {
+        for (int token : tokens) {
+            if (token < MATCH_FLAG) {
+                literalLengthCounts[token]++;
+            } else {
+                literalLengthCounts[HuffmanCodeTable.CHAR_SYMBOLS + LENGTH_SYMBOL[(token >>> 16) & 0x1FF]]++;
+                distanceCounts[distanceSymbol((token & 0xFFFF) + 1)]++;
+            }
+        }
+    }
+
+    /**
+     * Helper method for compressFile — payload size of the tokens in bits, extra bits included
+     */
+    private static long tokenBits(int[] tokens, byte[] literalLengthLengths, byte[] distanceLengths) {
+        long bits = 0;
+        for (int token : tokens) {
+            if (token < MATCH_FLAG) bits += literalLengthLengths[token];
+            else bits += matchBits(token, literalLengthLengths, distanceLengths);
+        }
+        return bits;
+    }
+
+    /**
+     * Helper method — bits for one match token: length & distance codes plus their extra bits
+     */
+    private static int matchBits(int token, byte[] literalLengthLengths, byte[] distanceLengths) {
+        int lengthBucket = LENGTH_SYMBOL[(token >>> 16) & 0x1FF];
+        int distanceBucket = distanceSymbol((token & 0xFFFF) + 1);
+        return literalLengthLengths[HuffmanCodeTable.CHAR_SYMBOLS + lengthBucket] + LENGTH_EXTRA[lengthBucket]
+                + distanceLengths[distanceBucket] + DISTANCE_EXTRA[distanceBucket];
+    }
+
+    /**
+     * Helper method for compressFile — turns a match back into literals when, with the codes of a first pass,
+     * it costs more bits than its chars do in a plain huffman code of the text (typically a minimum-length
+     * or far match in text with a small alphabet)
+     *
+     * @param tokens
+     * @param chars text the tokens were parsed from
+     * @param literalOnlyLengths plain huffman code lengths of the chars
+     * @param literalLengthLengths first pass literal/length code lengths
+     * @param distanceLengths first pass distance code lengths
+     * @return tokens with those matches replaced, or the same array if no match was worth dropping
+     */
+    private static int[] dropExpensiveMatches(int[] tokens, char[] chars, byte[] literalOnlyLengths, byte[] literalLengthLengths, byte[] distanceLengths) {
+        boolean[] drop = new boolean[tokens.length];
+        int extraTokens = 0;
+        int position = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            int token = tokens[t];
+            if (token < MATCH_FLAG) {
+                position++;
+                continue;
+            }
+            int length = (token >>> 16) & 0x1FF;
+            int literalBits = 0;
+            for (int i = position; i < position + length; i++) literalBits += literalOnlyLengths[chars[i]];
+            if (matchBits(token, literalLengthLengths, distanceLengths) > literalBits) {
+                drop[t] = true;
+                extraTokens += length - 1;
+            }
+            position += length;
+        }
+        if (extraTokens == 0) return tokens;
+
+        int[] cheaper = new int[tokens.length + extraTokens];
+        int count = 0;
+        position = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            int token = tokens[t];
+            int length = (token < MATCH_FLAG) ? 1 : (token >>> 16) & 0x1FF;
+            if (drop[t]) {
+                for (int i = position; i < position + length; i++) cheaper[count++] = chars[i];
+            } else {
+                cheaper[count++] = token;
+            }
+            position += length;
+        }
+        return cheaper;
+    }
+
+    /**
+     * Splits text into literal & match tokens
+     *
+     * @param chars
+     * @return tokens in order
+     */
+    private int[] parse(char[] chars) {
+        int n = chars.length;
+        int[] tokens = new int[Math.max(16, n / 4)];
+        int count = 0;
+        MatchFinder finder = (level == LEVEL_RLE) ? null : new MatchFinder(chars, level == LEVEL_FAST ? 16 : 256);
+
+        int i = 0;
+        while (i < n) {
+            int match = (finder == null) ? findRun(chars, i) : finder.find(i);
+            int length = match >>> 16;
+
+            // Lazy matching: a longer match starting one char later wins over this one
+            if (level == LEVEL_BEST && length >= MIN_MATCH && length < MAX_MATCH && i + 1 < n) {
+                finder.insert(i);
+                int next = finder.find(i + 1);
+                if ((next >>> 16) > length) {
+                    if (count == tokens.length) tokens = Arrays.copyOf(tokens, 2 * count);
+                    tokens[count++] = chars[i++];
+                    match = next;
+                    length = match >>> 16;
+                } else {
+                    finder.insert(i + 1);
+                    if (count == tokens.length) tokens = Arrays.copyOf(tokens, 2 * count);
+                    tokens[count++] = MATCH_FLAG | (length << 16) | ((match & 0xFFFF) - 1);
+                    for (int k = i + 2; k < i + length; k++) finder.insert(k);
+                    i += length;
+                    continue;
+                }
+            }
+
+            if (count == tokens.length) tokens = Arrays.copyOf(tokens, 2 * count);
+            if (length >= MIN_MATCH) {
+                tokens[count++] = MATCH_FLAG | (length << 16) | ((match & 0xFFFF) - 1);
+                if (finder != null) for (int k = i; k < i + length; k++) finder.insert(k);
+                i += length;
+            } else {
+                tokens[count++] = chars[i];
+                if (finder != null) finder.insert(i);
+                i++;
+            }
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+
+    /**
+     * Helper method for parse — run of the previous character starting at i
+     *
+     * @return length << 16 | distance (1), or 0 for no run
+     */
+    private static int findRun(char[] chars, int i) {
+        if (i == 0) return 0;
+        int limit = Math.min(chars.length - i, MAX_MATCH);
+        int length = 0;
+        while (length < limit && chars[i + length] == chars[i - 1]) length++;
+        return length >= MIN_MATCH ? (length << 16) | 1 : 0;
+    }
+
+    /**
+     * Helper method — distance bucket for a match distance
+     */
+    private static int distanceSymbol(int distance) {
+        int bucket = Arrays.binarySearch(DISTANCE_BASE, distance);
+        return bucket >= 0 ? bucket : -bucket - 2;
+    }
+
+    /**
+     * Hash chains over the window: head holds the latest position per hash of 3 chars,
+     * prev links each position to the previous one with the same hash
+     */
+    private static class MatchFinder {
+        private final char[] chars;
+        private final int chainLength;          // Most candidates checked per search
+        private final int[] head = new int[1 << HASH_BITS];
+        private final int[] prev = new int[WINDOW_SIZE];
+        private int inserted = 0;               // Positions below this are already in the chains
+
+        MatchFinder(char[] chars, int chainLength) {
+            this.chars = chars;
+            this.chainLength = chainLength;
+            Arrays.fill(head, -1);
+        }
+
+        private int hash(int i) {
+            return ((chars[i] * 961 + chars[i + 1] * 31 + chars[i + 2]) * 0x9E3779B1) >>> (32 - HASH_BITS);
+        }
+
+        /**
+         * Adds position i to its chain (each position once)
+         */
+        void insert(int i) {
+            if (i < inserted || i + MIN_MATCH > chars.length) return;
+            int h = hash(i);
+            prev[i & (WINDOW_SIZE - 1)] = head[h];
+            head[h] = i;
+            inserted = i + 1;
+        }
+
+        /**
+         * Longest earlier match for the text at i
+         *
+         * @return length << 16 | distance, or 0 for no match
+         */
+        int find(int i) {
+            if (i + MIN_MATCH > chars.length) return 0;
+            int limit = Math.min(chars.length - i, MAX_MATCH);
+            int bestLength = 0, bestDistance = 0;
+            int candidate = head[hash(i)];
+            for (int chain = chainLength; candidate >= 0 && chain > 0; chain--) {
+                int distance = i - candidate;
+                if (distance > WINDOW_SIZE || distance <= 0) break;
+
+                // Checks the char past the best length first, since a shorter match can't help
+                if (chars[candidate + bestLength] == chars[i + bestLength] || bestLength == 0) {
+                    int length = 0;
+                    while (length < limit && chars[candidate + length] == chars[i + length]) length++;
+                    if (length > bestLength) {
+                        bestLength = length;
+                        bestDistance = distance;
+                        if (length == limit) break;
+                    }
+                }
+
+                // Older entries of the ring may have been overwritten by newer positions
+                int next = prev[candidate & (WINDOW_SIZE - 1)];
+                if (next >= candidate) break;
+                candidate = next;
+            }
+            return bestLength >= MIN_MATCH ? (bestLength << 16) | bestDistance : 0;
+        }
+    }
+}
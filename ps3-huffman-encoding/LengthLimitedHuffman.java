@@ -0,0 +1,316 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * purpose: length-limited huffman codes (package-merge)
+ * makeCodeTree() has no bound on code length, so skewed inputs can give codes far over 32 bits.
+ * Package-merge finds the cheapest prefix code whose longest code is at most maxLength bits,
+ * which keeps decode tables & 64-bit bit buffers safe on any input.
+ *
+ * Results are code lengths, turned into codes by CanonicalHuffman (same form as computeCodes())
+ *
+ * 17 oct. 26
+ */
+
+public class LengthLimitedHuffman {
+    public static final int DEFAULT_MAX_LENGTH = 24;
+
+    /**
+     * Optimal code lengths with no code longer than maxLength
+     *
+     * @param counts frequency per symbol, 0 for unused symbols
+     * @param maxLength
+     * @return code length per symbol (0 for unused symbols)
+     */
+    public static byte[] codeLengths(long[] counts, int maxLength) {
+        byte[] lengths = new byte[counts.length];
+
+        // Used symbols, sorted by frequency (ties by symbol, so results don't depend on sort stability)
+        int n = 0;
+        for (long count : counts) if (count > 0) n++;
+        long[] sortKeys = new long[n];
+        int[] symbols = new int[n];
+        long[] weights = new long[n];
+        Integer[] order = new Integer[n];
+        n = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++) {
+            if (counts[symbol] > 0) {
+                symbols[n] = symbol;
+                sortKeys[n] = counts[symbol];
+                order[n] = n;
+                n++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> sortKeys[a] != sortKeys[b] ? Long.compare(sortKeys[a], sortKeys[b]) : Integer.compare(symbols[a], symbols[b]));
+        int[] sortedSymbols = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedSymbols[i] = symbols[order[i]];
+            weights[i] = sortKeys[order[i]];
+        }
+
+        // Safety check: boundary cases of 0 & 1 symbols
+        if (n == 0) return lengths;
+        if (n == 1) {
+            lengths[sortedSymbols[0]] = 1;
+            return lengths;
+        }
+        if (maxLength < 1 || maxLength > 62 || (1L << maxLength) < n) {
+            throw new IllegalArgumentException(n + " symbols don't fit in codes of at most " + maxLength + " bits");
+        }
+
+        // Builds the list for each level, deepest first: leaves merged with packages (pairs) of the level below
+        boolean[][] isLeaf = new boolean[maxLength][];
+        long[] previous = weights;
+        for (int level = maxLength - 1; level >= 0; level--) {
+            int packages = (level == maxLength - 1) ? 0 : previous.length / 2;
+            long[] current = new long[n + packages];
+            boolean[] leaf = new boolean[n + packages];
+            int i = 0, p = 0, k = 0;
+            while (i < n || p < packages) {
+
+                // Ties prefer leaves
+                long packageWeight = p < packages ? previous[2 * p] + previous[2 * p + 1] : Long.MAX_VALUE;
+                if (i < n && weights[i] <= packageWeight) {
+                    current[k] = weights[i++];
+                    leaf[k++] = true;
+                } else {
+                    current[k++] = packageWeight;
+                    p++;
+                }
+            }
+            isLeaf[level] = leaf;
+            previous = current;
+        }
+
+        // Takes the first 2n - 2 items of the top list; every leaf taken at a level adds 1 to that symbol's length
+        int take = 2 * n - 2;
+        for (int level = 0; level < maxLength && take > 0; level++) {
+            int leaves = 0;
+            for (int k = 0; k < take; k++) if (isLeaf[level][k]) leaves++;
+            for (int i = 0; i < leaves; i++) lengths[sortedSymbols[i]]++;
+            take = 2 * (take - leaves);     // Each package taken stands for 2 items of the level below
+        }
+        return lengths;
+    }
+
+    /**
+     * Code lengths for a frequency table from countFrequencies()
+     *
+     * @param frequencies
+     * @param numSymbols size of the returned array
+     * @param maxLength
+     * @return code length per symbol
+     */
+    public static byte[] codeLengths(Map<Character, Long> frequencies, int numSymbols, int maxLength) {
+        long[] counts = new long[numSymbols];
+        for (Map.Entry<Character, Long> entry : frequencies.entrySet()) counts[entry.getKey()] = entry.getValue();
+        return codeLengths(counts, maxLength);
+    }
+
+    /**
+     * Length-limited codes in the same form as computeCodes()
+     *
+     * @param frequencies
+     * @param maxLength
+     * @return map of characters to '0'/'1' codes
+     */
+    public static Map<Character, String> computeCodes(Map<Character, Long> frequencies, int maxLength) {
+        byte[] lengths = codeLengths(frequencies, HuffmanCodeTable.CHAR_SYMBOLS, maxLength);
+        return CanonicalHuffman.toCodeMap(CanonicalHuffman.canonicalTable(lengths));
+    }
+
+    /**
+     * Length-limited version of makeCodeTree(): computeCodes() on the result gives the canonical
+     * length-limited codes, so it also works with decompressFile() & decompressFileFast()
+     *
+     * @param frequencies
+     * @param maxLength
+     * @return code tree, or null for an empty frequency table
+     */
+    public static BinaryTree<CodeTreeElement> makeCodeTree(Map<Character, Long> frequencies, int maxLength) {
+        if (frequencies.isEmpty()) return null;
+        Map<Character, String> codeMap = computeCodes(frequencies, maxLength);
+
+        // Safety check: boundary case of 1 character, a single leaf as in makeCodeTree()
+        if (codeMap.size() == 1) {
+            Map.Entry<Character, Long> entry = frequencies.entrySet().iterator().next();
+            return new BinaryTree<CodeTreeElement>(new CodeTreeElement(entry.getValue(), entry.getKey()));
+        }
+        return buildTree(new ArrayList<Map.Entry<Character, String>>(codeMap.entrySet()), 0, frequencies);
+    }
+
+    /**
+     * Helper method for makeCodeTree — builds the subtree for codes sharing their first depth bits
+     * (codes are canonical, so sorting by code groups every subtree's codes together)
+     *
+     * @param codes codes of this subtree
+     * @param depth
+     * @param frequencies
+     * @return subtree
+     */
+    private static BinaryTree<CodeTreeElement> buildTree(List<Map.Entry<Character, String>> codes, int depth, Map<Character, Long> frequencies) {
+        if (codes.size() == 1 && codes.get(0).getValue().length() == depth) {
+            Character c = codes.get(0).getKey();
+            return new BinaryTree<CodeTreeElement>(new CodeTreeElement(frequencies.get(c), c));
+        }
+
+        // Splits on the next bit
+        List<Map.Entry<Character, String>> zeros = new ArrayList<Map.Entry<Character, String>>();
+        List<Map.Entry<Character, String>> ones = new ArrayList<Map.Entry<Character, String>>();
+        for (Map.Entry<Character, String> code : codes) {
+            if (code.getValue().charAt(depth) == '0') zeros.add(code);
+            else ones.add(code);
+        }
+        BinaryTree<CodeTreeElement> left = zeros.isEmpty() ? null : buildTree(zeros, depth + 1, frequencies);
+        BinaryTree<CodeTreeElement> right = ones.isEmpty() ? null : buildTree(ones, depth + 1, frequencies);
+        long frequency = (left == null ? 0 : left.getData().getFrequency()) + (right == null ? 0 : right.getData().getFrequency());
+        return new BinaryTree<CodeTreeElement>(new CodeTreeElement(frequency, null), left, right);
+    }
+
+    /**
+     * Helper method for the self-tests — checks that lengths are a complete prefix code for counts
+     * (Kraft sum exactly 1) with no code longer than maxLength
+     *
+     * @param counts
+     * @param lengths
+     * @param maxLength at most 62
+     * @return cost of the code in bits (sum of count * length)
+     */
+    static long checkLengths(long[] counts, byte[] lengths, int maxLength) {
+        long kraft = 0;     // Sum of 2^-length, in units of 2^-62
+        long cost = 0;
+        int used = 0;
+        for (int symbol = 0; symbol < counts.length; symbol++) {
+            int length = lengths[symbol] & 0xFF;
+            if ((counts[symbol] > 0) != (length > 0)) throw new IllegalStateException("Symbol " + symbol + " has count " + counts[symbol] + " but length " + length);
+            if (length == 0) continue;
+            if (length > maxLength) throw new IllegalStateException("Symbol " + symbol + " has length " + length + " over the limit of " + maxLength);
+            kraft += 1L << (62 - length);
+            cost += counts[symbol] * length;
+            used++;
+        }
+        if (used >= 2 && kraft != 1L << 62) throw new IllegalStateException("Kraft sum is " + (double)kraft / (1L << 62) + ", not 1");
+        return cost;
+    }
+
+    /**
+     * Helper method for the self-tests — unlimited huffman code, merging the two smallest weights
+     * (ties merge the shallower subtree first, which gives the shortest longest code of all huffman codes)
+     *
+     * @param counts
+     * @return cost in bits & longest code length
+     */
+    static long[] huffmanCostAndDepth(long[] counts) {
+        PriorityQueue<long[]> subtrees = new PriorityQueue<long[]>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for (long count : counts) if (count > 0) subtrees.add(new long[] {count, 0});
+        if (subtrees.isEmpty()) return new long[] {0, 0};
+        if (subtrees.size() == 1) return new long[] {subtrees.peek()[0], 1};   // A single symbol still gets a 1-bit code
+        long cost = 0;
+        while (subtrees.size() > 1) {
+            long[] a = subtrees.remove(), b = subtrees.remove();
+            long[] merged = {a[0] + b[0], Math.max(a[1], b[1]) + 1};
+            cost += merged[0];
+            subtrees.add(merged);
+        }
+        return new long[] {cost, subtrees.peek()[1]};
+    }
+
+    /**
+     * Helper method for the self-tests — writes lengths through the canonical header, then encodes every used symbol
+     * plus random ones with the canonical codes & checks they decode back the same
+     *
+     * @param counts
+     * @param lengths no code over CanonicalHuffman.MAX_CODE_LENGTH
+     * @param random
+     */
+    static void checkRoundTrip(long[] counts, byte[] lengths, Random random) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        CanonicalHuffman.writeHeader(lengths, new DataOutputStream(headerBytes));
+        byte[] readBack = CanonicalHuffman.readHeader(new DataInputStream(new ByteArrayInputStream(headerBytes.toByteArray())), lengths.length);
+        if (!Arrays.equals(lengths, readBack)) throw new IllegalStateException("Header doesn't give back the same lengths");
+
+        List<Integer> message = new ArrayList<Integer>();
+        for (int symbol = 0; symbol < counts.length; symbol++) if (counts[symbol] > 0) message.add(symbol);
+        for (int i = message.size(); i > 0 && i < 1000 + counts.length; i++) message.add(message.get(random.nextInt(i)));
+        Collections.shuffle(message, random);
+
+        HuffmanCodeTable codeTable = CanonicalHuffman.canonicalTable(readBack);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FastBitWriter bitOutput = new FastBitWriter(bytes, false);
+        for (int symbol : message) codeTable.encode(symbol, bitOutput);
+        long bits = bitOutput.getBitCount();
+        bitOutput.close();
+
+        HuffmanDecoder decoder = new HuffmanDecoder(codeTable);
+        FastBitReader bitInput = new FastBitReader(new ByteArrayInputStream(bytes.toByteArray()), bits);
+        for (int symbol : message) {
+            int decoded = decoder.decodeSymbol(bitInput);
+            if (decoded != symbol) throw new IllegalStateException("Decoded " + decoded + " instead of " + symbol);
+        }
+        if (decoder.decodeSymbol(bitInput) != -1) throw new IllegalStateException("Bits left over after the last symbol");
+    }
+
+    /**
+     * Counts for the self-tests: about a quarter of symbols unused, the rest random
+     */
+    static long[] randomCounts(int numSymbols, Random random) {
+        long[] counts = new long[numSymbols];
+        for (int symbol = 0; symbol < numSymbols; symbol++) {
+            if (random.nextInt(4) != 0) counts[symbol] = 1 + (long)(random.nextDouble() * random.nextDouble() * 1000000);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts for the self-tests: 1, 1, 2, 3, 5, ... the most skewed counts, whose huffman tree is a path
+     */
+    static long[] fibonacciCounts(int numSymbols) {
+        long[] counts = new long[numSymbols];
+        for (int symbol = 0; symbol < numSymbols; symbol++) counts[symbol] = (symbol < 2) ? 1 : counts[symbol - 1] + counts[symbol - 2];
+        return counts;
+    }
+
+    /**
+     * Helper method for main — one self-test case
+     */
+    private static void check(String name, long[] counts, int maxLength, Random random) throws IOException {
+        byte[] lengths = codeLengths(counts, maxLength);
+        long cost = checkLengths(counts, lengths, maxLength);
+        long[] huffman = huffmanCostAndDepth(counts);
+        int longest = 0;
+        for (byte length : lengths) longest = Math.max(longest, length);
+
+        // Limit not binding when a huffman code already fits: then nothing cheaper or dearer is allowed
+        if (cost < huffman[0] || (huffman[1] <= maxLength && cost != huffman[0])) {
+            throw new IllegalStateException(name + ": cost " + cost + " bits, huffman " + huffman[0] + " bits with longest code " + huffman[1]);
+        }
+        if (longest <= CanonicalHuffman.MAX_CODE_LENGTH) checkRoundTrip(counts, lengths, random);
+        System.out.println(name + ": longest code " + longest + "/" + maxLength + ", cost " + cost + " bits (huffman " + huffman[0] + " bits, longest code " + huffman[1] + ")");
+    }
+
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(8);
+
+        // Test case #1: boundary cases of 0, 1 & 2 symbols
+        check("no symbols", new long[256], DEFAULT_MAX_LENGTH, random);
+        long[] one = new long[256];
+        one['a'] = 5;
+        check("1 symbol", one, DEFAULT_MAX_LENGTH, random);
+        one['b'] = 1;
+        check("2 symbols", one, 1, random);
+
+        // Test case #2: random counts, limit not binding
+        check("random bytes", randomCounts(256, random), DEFAULT_MAX_LENGTH, random);
+        long[] chars = randomCounts(HuffmanCodeTable.CHAR_SYMBOLS, random);
+        check("random chars", chars, 40, random);
+
+        // Test case #3: random counts, limit binding
+        check("random chars, limit 24", chars, DEFAULT_MAX_LENGTH, random);
+        check("random bytes, limit 8", randomCounts(256, random), 8, random);     // Tightest limit for 256 symbols
+
+        // Test case #4: Fibonacci counts, huffman needs 39 bits
+        check("fibonacci, no limit", fibonacciCounts(40), 62, random);
+        check("fibonacci, limit 24", fibonacciCounts(40), DEFAULT_MAX_LENGTH, random);
+        check("fibonacci, limit 6", fibonacciCounts(40), 6, random);
+    }
+}
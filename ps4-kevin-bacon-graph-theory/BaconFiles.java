@@ -0,0 +1,360 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * purpose: the three Bacon input files, parsed straight from bytes into int-indexed arrays
+ * Files are read through a FileChannel into a byte buffer & scanned for '\n' & '|' by hand: no readLine(),
+ * no regex split, no String per ID. IDs are parsed as ints & renumbered densely (actors 0 .. numActors - 1,
+ * movies 0 .. numMovies - 1) through int hash tables, so the graph builders index arrays instead of maps.
+ * The actors & movies files are parsed on their own threads while the calling thread parses movie-actors.
+ *
+ * Same reading rules as ProcessBaconFiles: a later line with the same ID replaces the earlier name, only the
+ * text up to the next '|' is kept, cast lines for actors missing from the actors file are skipped, & movies
+ * that only appear in the movie-actors file get a null title.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class BaconFiles {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final String[] actorNames;      // Name per actor index
+    private final String[] movieTitles;     // Title per movie index (null if the movies file doesn't have it)
+    private final int[] castMovies;         // Cast line i: movie index castMovies[i] has actor index castActors[i]
+    private final int[] castActors;
+
+    private BaconFiles(String[] actorNames, String[] movieTitles, int[] castMovies, int[] castActors) {
+        this.actorNames = actorNames;
+        this.movieTitles = movieTitles;
+        this.castMovies = castMovies;
+        this.castActors = castActors;
+    }
+
+    public int numActors() { return actorNames.length; }
+
+    public int numMovies() { return movieTitles.length; }
+
+    public int numCastLines() { return castMovies.length; }
+
+    public String actorName(int actor) { return actorNames[actor]; }
+
+    public String movieTitle(int movie) { return movieTitles[movie]; }
+
+    public int castMovie(int line) { return castMovies[line]; }
+
+    public int castActor(int line) { return castActors[line]; }
+
+    /**
+     * Parses the three files, the first two in parallel with the third
+     * Text is decoded in the default charset, like the FileReaders in ProcessBaconFiles
+     * @param actorsFile lines of actor ID|name
+     * @param moviesFile lines of movie ID|title
+     * @param movieActorsFile lines of movie ID|actor ID
+     * @return
+     */
+    public static BaconFiles parse(String actorsFile, String moviesFile, String movieActorsFile) throws IOException {
+        final Charset charset = Charset.defaultCharset();
+        FutureTask<NamedIds> actorsTask = new FutureTask<NamedIds>(() -> parseNames(actorsFile, charset));
+        FutureTask<NamedIds> moviesTask = new FutureTask<NamedIds>(() -> parseNames(moviesFile, charset));
+        start(actorsTask, "bacon-actors-parser");
+        start(moviesTask, "bacon-movies-parser");
+        try {
+            final IntList pairs = new IntList();   // movie ID, actor ID, movie ID, ...
+            scan(movieActorsFile, (bytes, start, bar, end, line) -> {
+                pairs.add(parseId(bytes, start, bar, movieActorsFile, line));
+                pairs.add(parseId(bytes, bar + 1, fieldEnd(bytes, bar + 1, end), movieActorsFile, line));
+            });
+            NamedIds actors = finish(actorsTask);
+            NamedIds movies = finish(moviesTask);
+
+            // renumber the cast lines; movies the movies file didn't have are added with a null title
+            int lines = pairs.size() / 2;
+            int[] castMovies = new int[lines], castActors = new int[lines];
+            for (int i = 0; i < lines; i++) {
+                castMovies[i] = movies.index.add(pairs.get(2 * i), movies.names.size());
+                if (castMovies[i] == movies.names.size()) movies.names.add(null);
+                castActors[i] = actors.index.get(pairs.get(2 * i + 1));
+            }
+            return new BaconFiles(actors.names.toArray(new String[0]), movies.names.toArray(new String[0]), castMovies, castActors);
+        } finally {
+            actorsTask.cancel(true);
+            moviesTask.cancel(true);
+        }
+    }
+
+    /**
+     * Same data from the maps ProcessBaconFiles makes (IDs stay strings there, so they're numbered here)
+     * Movies are the ones with a cast, in the order movieActors lists them
+     * @param actors actor ID -> name
+     * @param movies movie ID -> title
+     * @param movieActors movie ID -> actor IDs
+     * @return
+     */
+    public static BaconFiles fromMaps(Map<String, String> actors, Map<String, String> movies, Map<String, Set<String>> movieActors) {
+        Map<String, Integer> actorIndex = new HashMap<String, Integer>();
+        String[] actorNames = new String[actors.size()];
+        for (Map.Entry<String, String> actor : actors.entrySet()) {
+            actorNames[actorIndex.size()] = actor.getValue();
+            actorIndex.put(actor.getKey(), actorIndex.size());
+        }
+
+        int lines = 0;
+        for (Set<String> cast : movieActors.values()) lines += cast.size();
+        String[] movieTitles = new String[movieActors.size()];
+        int[] castMovies = new int[lines], castActors = new int[lines];
+        int m = 0, i = 0;
+        for (Map.Entry<String, Set<String>> movie : movieActors.entrySet()) {
+            movieTitles[m] = movies.get(movie.getKey());
+            for (String actorID : movie.getValue()) {
+                Integer actor = actorIndex.get(actorID);
+                castMovies[i] = m;
+                castActors[i++] = (actor == null) ? -1 : actor;
+            }
+            m++;
+        }
+        return new BaconFiles(actorNames, movieTitles, castMovies, castActors);
+    }
+
+    /**
+     * Cast of every movie as sorted, distinct vertex IDs (cast lines for unknown actors are left out)
+     * @param vertexOfActor vertex ID per actor index (actors sharing a name share a vertex)
+     * @return per movie, its cast
+     */
+    int[][] casts(int[] vertexOfActor) {
+
+        // counting sort of cast lines by movie
+        int[] start = new int[movieTitles.length + 1];
+        for (int i = 0; i < castMovies.length; i++) {
+            if (castActors[i] >= 0) start[castMovies[i] + 1]++;
+        }
+        for (int m = 0; m < movieTitles.length; m++) start[m + 1] += start[m];
+        int[] all = new int[start[movieTitles.length]];
+        int[] cursor = Arrays.copyOf(start, movieTitles.length);
+        for (int i = 0; i < castMovies.length; i++) {
+            if (castActors[i] >= 0) all[cursor[castMovies[i]]++] = vertexOfActor[castActors[i]];
+        }
+
+        int[][] casts = new int[movieTitles.length][];
+        for (int m = 0; m < movieTitles.length; m++) {
+            Arrays.sort(all, start[m], start[m + 1]);
+            int distinct = start[m];
+            for (int i = start[m]; i < start[m + 1]; i++) {
+                if (distinct == start[m] || all[i] != all[distinct - 1]) all[distinct++] = all[i];
+            }
+            casts[m] = Arrays.copyOfRange(all, start[m], distinct);
+        }
+        return casts;
+    }
+
+    /**
+     * Names (or titles) of one file, with the index of each ID
+     */
+    private static class NamedIds {
+        final IdTable index = new IdTable();
+        final List<String> names = new ArrayList<String>();
+    }
+
+    /**
+     * Helper method for parse — reads an ID|name file
+     */
+    private static NamedIds parseNames(String fileName, Charset charset) throws IOException {
+        NamedIds parsed = new NamedIds();
+        scan(fileName, (bytes, start, bar, end, line) -> {
+            int id = parseId(bytes, start, bar, fileName, line);
+            String name = new String(bytes, bar + 1, fieldEnd(bytes, bar + 1, end) - bar - 1, charset);
+            int index = parsed.index.add(id, parsed.names.size());
+            if (index == parsed.names.size()) parsed.names.add(name);
+            else parsed.names.set(index, name);     // repeated ID: last one wins, as with Map.put
+        });
+        return parsed;
+    }
+
+    /**
+     * Called once per non-empty line; bytes[start, end) is the line (without '\r' or '\n'), bar its first '|'
+     */
+    private interface LineHandler {
+        void line(byte[] bytes, int start, int bar, int end, long lineNumber) throws IOException;
+    }
+
+    /**
+     * Helper method — reads a file in BUFFER_SIZE blocks & hands each line to handler;
+     * a line cut off at the end of a block is moved to the front & finished by the next read
+     */
+    private static void scan(String fileName, LineHandler handler) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long lineNumber = 0;
+            boolean ended = false;
+            while (!ended) {
+                ended = channel.read(buffer) == -1;
+                byte[] bytes = buffer.array();
+                int limit = buffer.position();
+                int start = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] != '\n') continue;
+                    lineNumber++;
+                    line(bytes, start, i, lineNumber, fileName, handler);
+                    start = i + 1;
+                }
+                if (ended) {
+                    if (start < limit) line(bytes, start, limit, lineNumber + 1, fileName, handler);   // no final '\n'
+                } else if (start == 0 && limit == bytes.length) {
+                    buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, 2 * bytes.length)).position(limit);  // line longer than the buffer
+                } else {
+                    System.arraycopy(bytes, start, bytes, 0, limit - start);
+                    buffer.position(limit - start);
+                }
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Helper method for scan — trims '\r', skips blank lines & finds the '|'
+     */
+    private static void line(byte[] bytes, int start, int end, long lineNumber, String fileName, LineHandler handler) throws IOException {
+        if (end > start && bytes[end - 1] == '\r') end--;
+        if (end == start) return;
+        for (int bar = start; bar < end; bar++) {
+            if (bytes[bar] == '|') {
+                handler.line(bytes, start, bar, end, lineNumber);
+                return;
+            }
+        }
+        throw new IOException(fileName + " line " + lineNumber + " has no '|'");
+    }
+
+    /**
+     * Helper method — end of the field starting at start (next '|' or the end of the line)
+     */
+    private static int fieldEnd(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == '|') return i;
+        }
+        return end;
+    }
+
+    /**
+     * Helper method — decimal int in bytes[start, end)
+     */
+    private static int parseId(byte[] bytes, int start, int end, String fileName, long lineNumber) throws IOException {
+        boolean negative = end > start && bytes[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 10) throw new IOException(fileName + " line " + lineNumber + ": bad ID");
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) throw new IOException(fileName + " line " + lineNumber + ": bad ID");
+            value = 10 * value + digit;
+        }
+        if (negative) value = -value;
+        if (value != (int)value) throw new IOException(fileName + " line " + lineNumber + ": ID out of range");
+        return (int)value;
+    }
+
+    /**
+     * Helper method for parse
+     */
+    private static void start(FutureTask<?> task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Helper method for parse — waits for a parser thread & rethrows anything it failed with
+     */
+    private static <T> T finish(FutureTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException)e.getCause();
+            throw new IOException("Parsing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Growable int array
+     */
+    private static class IntList {
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        int get(int i) { return values[i]; }
+
+        int size() { return size; }
+    }
+
+    /**
+     * Open-addressing hash table from int ID to index, with no boxing
+     */
+    private static class IdTable {
+        private int[] keys = new int[1024];
+        private int[] values = new int[1024];   // index + 1, so 0 means empty
+        private int size = 0;
+
+        /**
+         * Index of id, or -1
+         */
+        int get(int id) {
+            int mask = keys.length - 1;
+            for (int slot = hash(id) & mask; values[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) return values[slot] - 1;
+            }
+            return -1;
+        }
+
+        /**
+         * Index of id, giving it index if it's new
+         */
+        int add(int id, int index) {
+            if (2 * (size + 1) > keys.length) grow();
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+            for (; values[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) return values[slot] - 1;
+            }
+            keys[slot] = id;
+            values[slot] = index + 1;
+            size++;
+            return index;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys, oldValues = values;
+            keys = new int[2 * oldKeys.length];
+            values = new int[2 * oldKeys.length];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] == 0) continue;
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != 0) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
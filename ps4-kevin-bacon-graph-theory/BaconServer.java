@@ -0,0 +1,204 @@
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * purpose: Kevin Bacon game for many users at once, over a local socket or in-process
+ * One graph is loaded & shared read-only by every session; each session (BaconSession) has its own center.
+ * BFS results go through one shared ShortestPathCache, so sessions reuse each other's centers &
+ * concurrent requests for the same center run one BFS between them.
+ *
+ * Each connection runs on its own virtual thread when the JVM has them (Java 21+; found by reflection
+ * so this still compiles on older JDKs), otherwise on a cached pool of platform threads.
+ * Protocol: one game command per line (same commands as BaconGame); each reply ends with an empty line.
+ * A graph without DEFAULT_CENTER starts its sessions on its first actor instead.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class BaconServer implements Closeable {
+    public static final int DEFAULT_PORT = 4242;
+    public static final String DEFAULT_CENTER = "Kevin Bacon";
+
+    private final Graph<String, Set<String>> baconGraph;
+    private final ShortestPathCache<String> bfsCache;
+    private final ExecutorService executor;
+    private final AtomicInteger openSessions = new AtomicInteger();
+    private final Set<Socket> clients = new HashSet<Socket>();     // open connections, closed by close()
+    private boolean closed = false;                                 // guarded by clients
+    private ClosenessCentrality closeness = null;    // built the first time centers are ranked
+    private ServerSocket serverSocket = null;
+
+    /**
+     * Server over a graph that's already built; the graph mustn't be changed while the server runs
+     * @param baconGraph
+     */
+    public BaconServer(Graph<String, Set<String>> baconGraph) {
+        this.baconGraph = baconGraph;
+        this.bfsCache = new ShortestPathCache<String>(baconGraph);
+        this.executor = newRequestExecutor();
+    }
+
+    public BaconServer(String actorsFile, String moviesFile, String movieActorsFile) throws IOException {
+        this(BuildBaconGraph.buildGraph(actorsFile, moviesFile, movieActorsFile, BuildBaconGraph.GraphType.CSR));
+    }
+
+    /**
+     * Helper method — one virtual thread per task if the JVM has them, otherwise a cached thread pool
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "bacon-session");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    Graph<String, Set<String>> graph() { return baconGraph; }
+
+    ShortestPathCache<String> bfsCache() { return bfsCache; }
+
+    synchronized ClosenessCentrality closeness() {
+        if (closeness == null) closeness = ClosenessCentrality.of(baconGraph);
+        return closeness;
+    }
+
+    /**
+     * New in-process session, centered on DEFAULT_CENTER (or the graph's first actor if it hasn't got one)
+     * @return
+     * @throws IllegalStateException if the graph has no actors at all
+     */
+    public BaconSession openSession() {
+        if (baconGraph.hasVertex(DEFAULT_CENTER)) return openSession(DEFAULT_CENTER);
+        for (String actor : baconGraph.vertices()) return openSession(actor);
+        throw new IllegalStateException("Graph has no actors to center a session on");
+    }
+
+    /**
+     * New in-process session, centered on center
+     * @param center
+     * @return
+     * @throws IllegalArgumentException if there's no such actor
+     */
+    public BaconSession openSession(String center) {
+        return new BaconSession(baconGraph, bfsCache, this::closeness, center);
+    }
+
+    /**
+     * Runs a task on the server's request threads (e.g. one per simulated user)
+     * @param task
+     * @return
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    public int openSessions() { return openSessions.get(); }
+
+    /**
+     * Starts accepting connections on port (0 for any free port) in the background
+     * @param port
+     * @return port actually used
+     */
+    public synchronized int start(int port) throws IOException {
+        if (serverSocket != null) throw new IllegalStateException("Server is already running");
+        serverSocket = new ServerSocket(port);
+        final ServerSocket listening = serverSocket;
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    final Socket socket = listening.accept();
+                    synchronized (clients) {
+                        if (closed) {
+                            socket.close();
+                            continue;
+                        }
+                        clients.add(socket);
+                        executor.submit(() -> serve(socket));
+                    }
+                }
+            } catch (IOException e) {
+                // socket closed, server is shutting down
+            }
+        }, "bacon-acceptor");
+        acceptor.start();   // not a daemon, so the JVM keeps serving until close()
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Helper method — one connection: reads commands & writes replies until q or the client goes away
+     */
+    private Void serve(Socket socket) {
+        openSessions.incrementAndGet();
+        try {
+            BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            BaconSession session = openSession();
+            output.write(session.welcome() + "\n\n");
+            output.flush();
+
+            String command;
+            while ((command = input.readLine()) != null) {
+                output.write(session.execute(command) + "\n\n");
+                output.flush();
+                if (session.isClosed()) break;
+            }
+        } catch (IOException e) {
+            // client went away (or close() closed the socket)
+        } catch (RuntimeException e) {
+            // e.g. no actor to center the session on: tell the client rather than just hanging up
+            try {
+                Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                output.write("Error: " + e.getMessage() + "\n\n");
+                output.flush();
+            } catch (IOException ignored) {
+                // client went away
+            }
+        } finally {
+            openSessions.decrementAndGet();
+            synchronized (clients) {
+                clients.remove(socket);
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to do
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones & stops the request threads
+     * (closing a client's socket is what unblocks a thread waiting in readLine())
+     */
+    public synchronized void close() throws IOException {
+        if (serverSocket != null) serverSocket.close();
+        synchronized (clients) {
+            closed = true;
+            for (Socket socket : clients) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+            }
+            clients.clear();
+        }
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        BaconServer server = new BaconServer(BaconSnapshot.loadOrBuild("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-Actors.txt", "inputs/bacon.snapshot"));
+        System.out.println("Kevin Bacon server listening on port " + server.start(port));
+    }
+}
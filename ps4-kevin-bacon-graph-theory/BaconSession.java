@@ -0,0 +1,194 @@
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * purpose: one user's Kevin Bacon game; the commands of BaconGame.play() & BaconServer are all run here
+ * Replies are returned as text instead of printed, & the only state is this session's center. The graph,
+ * the BFS cache & the centrality engine are passed in, so a server can share them between all its sessions.
+ * A session is meant to be used by one thread at a time.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class BaconSession {
+    private final Graph<String, Set<String>> baconGraph;
+    private final ShortestPathCache<String> bfsCache;
+    private final Supplier<ClosenessCentrality> closeness;     // built the first time centers are ranked
+    private String universeCenter;
+    private ShortestPathTree<String> shortestPathBacon;
+    private boolean closed = false;
+
+    /**
+     * @param baconGraph
+     * @param bfsCache BFS results over baconGraph
+     * @param closeness centrality engine over baconGraph, only asked for when centers are ranked
+     * @param center
+     * @throws IllegalArgumentException if there's no such actor as center
+     */
+    BaconSession(Graph<String, Set<String>> baconGraph, ShortestPathCache<String> bfsCache, Supplier<ClosenessCentrality> closeness, String center) {
+        this.baconGraph = baconGraph;
+        this.bfsCache = bfsCache;
+        this.closeness = closeness;
+        makeCenterUniverse(center);
+    }
+
+    public String getCenter() { return universeCenter; }
+
+    public boolean isClosed() { return closed; }
+
+    /**
+     * Makes name this session's center (other sessions keep theirs)
+     * @param name
+     * @throws IllegalArgumentException if there's no such actor; the center stays as it was
+     */
+    public void makeCenterUniverse(String name) {
+        shortestPathBacon = bfsCache.get(name);
+        universeCenter = name;
+    }
+
+    public String welcome() {
+        return universeCenter + " is now the center of the acting universe, connected to " +
+                shortestPathBacon.reachedCount() + "/" + baconGraph.numVertices() + " with average separation "
+                + shortestPathBacon.averageSeparation();
+    }
+
+    /**
+     * Runs one game command
+     * @param command as typed in BaconGame, e.g. "p Tom Hanks" or "b Tom Hanks | Meryl Streep"
+     * @return reply text (no trailing newline)
+     */
+    public String execute(String command) {
+        String[] commandArray = command.trim().split(" ");
+        try {
+            switch (commandArray[0]) {
+                case "c": {
+                    // exact on small graphs; sampled on big ones or when a sample size is given ("c <#> <samples> [seed]")
+                    int number = Integer.parseInt(commandArray[1]);
+                    String heading = ((number > 0) ? "Best " + number : "Worst " + (0 - number)) + " centers of the universe: ";
+                    if (commandArray.length > 2 || baconGraph.numVertices() > BaconGame.APPROXIMATE_ABOVE) {
+                        int samples = (commandArray.length > 2) ? Integer.parseInt(commandArray[2]) : BaconGame.DEFAULT_SAMPLES;
+                        long seed = (commandArray.length > 3) ? Long.parseLong(commandArray[3]) : BaconGame.DEFAULT_SEED;
+                        List<ClosenessCentrality.Estimate> centers = approximateTopCenters(number, samples, seed);
+                        return "(estimated from " + samples + " sampled actors, seed " + seed + "; 95% intervals shown where not exact)\n"
+                                + heading + centers;
+                    }
+                    return heading + topCenters(number);
+                }
+                case "d": {
+                    int low = Integer.parseInt(commandArray[1]);
+                    int high = Integer.parseInt(commandArray[2]);
+                    return "Actors that co-starred in between " + low + " and " + high + " movies: " + actorsByDegreeBetween(low, high);
+                }
+                case "i":
+                    return "Actors with infinite Bacon numbers: " + actorsWithInfiniteSep();
+                case "s": {
+                    int low = Integer.parseInt(commandArray[1]);
+                    int high = Integer.parseInt(commandArray[2]);
+                    return "Actors that have a bacon number between " + low + " and " + high + ": " + actorsByNonInfiniteSeparation(low, high);
+                }
+                case "u":
+                    makeCenterUniverse(command.trim().substring(2).trim());
+                    return welcome();
+                case "p":
+                    return shortestBaconPath(command.trim().substring(2).trim());
+                case "b": {
+                    String[] names = command.trim().substring(2).split("\\|"); // "b <name1> | <name2>"
+                    return shortestPathBetween(names[0].trim(), names[1].trim());
+                }
+                case "q":
+                    closed = true;
+                    return "Game over.";
+                default:
+                    return "Unknown command.";
+            }
+        } catch (Exception e) {
+            return "Invalid input. Please try again.";
+        }
+    }
+
+    /**
+     * Top (positive number) or bottom (negative number) centers of the universe, sorted by average separation
+     * @param number
+     * @return
+     */
+    public List<Map.Entry<String, Double>> topCenters(int number) {
+        List<Map.Entry<String, Double>> sortedCenters = closeness.get().sortedAverageSeparations();
+        int count = Math.min(Math.abs(number), sortedCenters.size());
+        List<Map.Entry<String, Double>> centers = new ArrayList<Map.Entry<String, Double>>();
+        for (int i = 0; i < count; i++) {
+            centers.add(sortedCenters.get((number > 0) ? i : sortedCenters.size() - i - 1));
+        }
+        return centers;
+    }
+
+    /**
+     * Approximate topCenters() (see ClosenessCentrality.approximateCenters())
+     * @param number
+     * @param samples
+     * @param seed
+     * @return
+     */
+    public List<ClosenessCentrality.Estimate> approximateTopCenters(int number, int samples, long seed) {
+        return closeness.get().approximateCenters(number, samples, seed);
+    }
+
+    /**
+     * Actors with degrees between low & high, sorted by degree
+     * @param low
+     * @param high
+     * @return
+     */
+    public List<Map.Entry<String, Integer>> actorsByDegreeBetween(int low, int high) {
+        List<Map.Entry<String, Integer>> degrees = new ArrayList<Map.Entry<String, Integer>>();
+        for (String v : baconGraph.vertices()) {
+            int degree = baconGraph.outDegree(v);
+            if (degree >= low && degree <= high) degrees.add(new AbstractMap.SimpleImmutableEntry<String, Integer>(v, degree));
+        }
+        degrees.sort(Map.Entry.comparingByValue());
+        return degrees;
+    }
+
+    public Set<String> actorsWithInfiniteSep() {
+        return shortestPathBacon.unreachable();
+    }
+
+    public List<Map.Entry<String, Integer>> actorsByNonInfiniteSeparation(int low, int high) {
+        return shortestPathBacon.verticesBetween(low, high);
+    }
+
+    /**
+     * name's Bacon number & path to this session's center
+     * @param name
+     * @return
+     */
+    public String shortestBaconPath(String name) {
+        List<String> path = shortestPathBacon.getPath(name);
+        if (path.size() == 0) return "No path found.";
+        path.add(0, name);
+        return name + "'s Bacon number is " + (path.size() - 1) + "\n" + describePath(path);
+    }
+
+    /**
+     * Shortest path between any two actors, without making either one the center (bidirectional BFS)
+     * @param name1
+     * @param name2
+     * @return
+     */
+    public String shortestPathBetween(String name1, String name2) {
+        List<String> path = GraphLib.shortestPath(baconGraph, name1, name2);
+        if (path.size() == 0) return "No path found.";
+        return name1 + " and " + name2 + " are separated by " + (path.size() - 1) + "\n" + describePath(path);
+    }
+
+    /**
+     * Helper method — one line per step of a path, with the movies the two actors shared
+     */
+    private String describePath(List<String> path) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i + 1 < path.size(); i++) {
+            if (i > 0) lines.append("\n");
+            lines.append(path.get(i) + " appeared in " + baconGraph.getLabel(path.get(i), path.get(i + 1)) + " with " + path.get(i + 1));
+        }
+        return lines.toString();
+    }
+}
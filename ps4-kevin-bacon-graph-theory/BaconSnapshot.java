@@ -0,0 +1,264 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+/**
+ * purpose: binary snapshot of a built CSRGraph, so a restart loads the graph instead of rebuilding it
+ * The text files are parsed & the graph built once; after that, load() maps the snapshot with a FileChannel
+ * & copies each CSR array out in bulk. Nothing is allocated per edge & nothing is parsed but the names.
+ *
+ * Layout (big-endian):
+ *  header: magic, version, actors (n), movies (m), edges (e), label entries (l) as ints,
+ *          then the byte sizes of the two string blobs as longs
+ *  actor names: n byte lengths (ints), then the UTF-8 bytes
+ *  movie titles: m byte lengths (ints, -1 for a title that was missing), then the UTF-8 bytes
+ *  padding to a multiple of 4 bytes
+ *  CSR arrays as ints: offsets (n + 1), targets (e), labelOffsets (e + 1), labelMovies (l)
+ * load() checks the sizes against the file length & every array entry against its bounds before building the graph.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class BaconSnapshot {
+    public static final int MAGIC = 0x424B4E53;     // "BKNS"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 6 * 4 + 2 * 8;
+    private static final int CHUNK_INTS = 1 << 28;  // Ints per mapping (1 GB), under the 2 GB limit of one MappedByteBuffer
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Writes the graph to pathName; goes through a temporary file, so a crash never leaves half a snapshot
+     * @param g
+     * @param pathName
+     */
+    public static void write(CSRGraph g, String pathName) throws IOException {
+        int n = g.numVertices();
+        String[] movieTitles = g.movieTitles();
+        byte[][] names = new byte[n][];
+        byte[][] titles = new byte[movieTitles.length][];
+        long namesBytes = 0, titlesBytes = 0;
+        for (int u = 0; u < n; u++) {
+            names[u] = g.vertexName(u).getBytes(StandardCharsets.UTF_8);
+            namesBytes += names[u].length;
+        }
+        for (int m = 0; m < titles.length; m++) {
+            if (movieTitles[m] == null) continue;
+            titles[m] = movieTitles[m].getBytes(StandardCharsets.UTF_8);
+            titlesBytes += titles[m].length;
+        }
+
+        Path path = Paths.get(pathName).toAbsolutePath();
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(titles.length);
+                buffer.putInt(g.neighbors().length).putInt(g.labelMovies().length);
+                buffer.putLong(namesBytes).putLong(titlesBytes);
+
+                long position = HEADER_BYTES;
+                position += writeStrings(names, buffer, channel);
+                position += writeStrings(titles, buffer, channel);
+                for (; position % 4 != 0; position++) put(buffer, channel, 1).put((byte)0);
+
+                writeInts(g.neighborOffsets(), buffer, channel);
+                writeInts(g.neighbors(), buffer, channel);
+                writeInts(g.labelOffsets(), buffer, channel);
+                writeInts(g.labelMovies(), buffer, channel);
+                flush(buffer, channel);
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Helper method for write — lengths, then bytes
+     * @return bytes written
+     */
+    private static long writeStrings(byte[][] strings, ByteBuffer buffer, FileChannel channel) throws IOException {
+        long written = 4L * strings.length;
+        for (byte[] s : strings) put(buffer, channel, 4).putInt((s == null) ? -1 : s.length);
+        for (byte[] s : strings) {
+            if (s == null) continue;
+            for (int offset = 0; offset < s.length; ) {
+                int count = Math.min(s.length - offset, put(buffer, channel, 1).remaining());
+                buffer.put(s, offset, count);
+                offset += count;
+            }
+            written += s.length;
+        }
+        return written;
+    }
+
+    /**
+     * Helper method for write — ints in buffer-sized runs
+     */
+    private static void writeInts(int[] values, ByteBuffer buffer, FileChannel channel) throws IOException {
+        for (int offset = 0; offset < values.length; ) {
+            int count = Math.min(values.length - offset, put(buffer, channel, 4).remaining() / 4);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + 4 * count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Helper method for write — buffer with room for at least bytes more, flushing it if needed
+     */
+    private static ByteBuffer put(ByteBuffer buffer, FileChannel channel, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flush(buffer, channel);
+        return buffer;
+    }
+
+    /**
+     * Helper method for write
+     */
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Loads a snapshot written by write()
+     * @param pathName
+     * @return
+     */
+    public static CSRGraph load(String pathName) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(pathName), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException(pathName + " is not a Bacon snapshot");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) throw new IOException(pathName + " is not a Bacon snapshot");
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Snapshot version " + version + " isn't supported (expected " + VERSION + ")");
+            int n = header.getInt(), numMovies = header.getInt(), numEdges = header.getInt(), numLabels = header.getInt();
+            long namesBytes = header.getLong(), titlesBytes = header.getLong();
+            if (n < 0 || numMovies < 0 || numEdges < 0 || numLabels < 0 || namesBytes < 0 || titlesBytes < 0) {
+                throw new IOException("Snapshot header is corrupt");
+            }
+
+            // sizes must add up exactly, so a truncated file is caught before anything is read
+            long position = HEADER_BYTES;
+            long namesStart = position;
+            position += 4L * n + namesBytes;
+            long titlesStart = position;
+            position += 4L * numMovies + titlesBytes;
+            position = (position + 3) & ~3L;
+            long arraysBytes = 4L * ((n + 1) + numEdges + (numEdges + 1) + (long)numLabels);
+            if (position + arraysBytes != size) throw new IOException("Snapshot is truncated or corrupt (" + size + " bytes, expected " + (position + arraysBytes) + ")");
+
+            String[] names = readStrings(channel, namesStart, n, namesBytes);
+            String[] movieTitles = readStrings(channel, titlesStart, numMovies, titlesBytes);
+            int[] offsets = readInts(channel, position, n + 1);
+            position += 4L * (n + 1);
+            int[] targets = readInts(channel, position, numEdges);
+            position += 4L * numEdges;
+            int[] labelOffsets = readInts(channel, position, numEdges + 1);
+            position += 4L * (numEdges + 1);
+            int[] labelMovies = readInts(channel, position, numLabels);
+
+            checkArrays(names, numMovies, offsets, targets, labelOffsets, labelMovies);
+            return CSRGraph.fromArrays(names, offsets, targets, labelOffsets, labelMovies, movieTitles);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Helper method for load — one pass over the arrays, so a corrupt snapshot fails here with an IOException
+     * (& loadOrBuild rebuilds it) rather than with an index out of bounds in the middle of a query
+     */
+    private static void checkArrays(String[] names, int numMovies, int[] offsets, int[] targets, int[] labelOffsets, int[] labelMovies) throws IOException {
+        int n = names.length;
+        for (String name : names) {
+            if (name == null) throw new IOException("Snapshot has an actor without a name");
+        }
+        if (offsets[0] != 0 || offsets[n] != targets.length) throw new IOException("Snapshot offsets are corrupt");
+        for (int u = 0; u < n; u++) {
+            if (offsets[u] > offsets[u + 1]) throw new IOException("Snapshot offsets are corrupt");
+        }
+        for (int v : targets) {
+            if (v < 0 || v >= n) throw new IOException("Snapshot has an edge to actor " + v + " of " + n);
+        }
+        if (labelOffsets[0] != 0 || labelOffsets[targets.length] != labelMovies.length) throw new IOException("Snapshot label offsets are corrupt");
+        for (int e = 0; e < targets.length; e++) {
+            if (labelOffsets[e] > labelOffsets[e + 1]) throw new IOException("Snapshot label offsets are corrupt");
+        }
+        for (int movie : labelMovies) {
+            if (movie < 0 || movie >= numMovies) throw new IOException("Snapshot has a label with movie " + movie + " of " + numMovies);
+        }
+    }
+
+    /**
+     * Helper method for load — one string table
+     */
+    private static String[] readStrings(FileChannel channel, long start, int count, long bytes) throws IOException {
+        if (4L * count + bytes > Integer.MAX_VALUE) throw new IOException("String table is too large to map");
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, start, 4L * count + bytes);
+        int[] lengths = new int[count];
+        table.asIntBuffer().get(lengths);
+        table.position(4 * count);
+
+        String[] strings = new String[count];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] < 0) continue;
+            if (lengths[i] > table.remaining()) throw new IOException("String table is corrupt");
+            if (lengths[i] > scratch.length) scratch = new byte[Math.max(lengths[i], 2 * scratch.length)];
+            table.get(scratch, 0, lengths[i]);
+            strings[i] = new String(scratch, 0, lengths[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * Helper method for load — bulk copy of one int array, mapping at most CHUNK_INTS at a time
+     */
+    private static int[] readInts(FileChannel channel, long start, int count) throws IOException {
+        int[] values = new int[count];
+        for (int offset = 0; offset < count; ) {
+            int chunk = Math.min(count - offset, CHUNK_INTS);
+            channel.map(FileChannel.MapMode.READ_ONLY, start + 4L * offset, 4L * chunk).asIntBuffer().get(values, offset, chunk);
+            offset += chunk;
+        }
+        return values;
+    }
+
+    /**
+     * Loads snapshotFile if it's newer than all three input files, otherwise builds the CSR graph
+     * from the input files & writes a new snapshot for next time
+     * @param actorsFile
+     * @param moviesFile
+     * @param movieActorsFile
+     * @param snapshotFile
+     * @return
+     */
+    public static CSRGraph loadOrBuild(String actorsFile, String moviesFile, String movieActorsFile, String snapshotFile) throws IOException {
+        File snapshot = new File(snapshotFile);
+        long newestInput = Math.max(new File(actorsFile).lastModified(),
+                Math.max(new File(moviesFile).lastModified(), new File(movieActorsFile).lastModified()));
+        if (snapshot.isFile() && snapshot.lastModified() >= newestInput) {
+            try {
+                return load(snapshotFile);
+            } catch (IOException e) {
+                System.err.println("Rebuilding " + snapshotFile + ": " + e.getMessage());
+            }
+        }
+        CSRGraph g = (CSRGraph)BuildBaconGraph.buildGraph(actorsFile, moviesFile, movieActorsFile, BuildBaconGraph.GraphType.CSR);
+        write(g, snapshotFile);
+        return g;
+    }
+}
@@ -0,0 +1,260 @@
+import java.util.*;
+
+/**
+ * purpose: co-star graph kept as the actor <-> movie bipartite graph
+ * Only the actor -> movies & movie -> cast lists are stored (both as int arrays in CSR form), so building
+ * costs one step per (movie, actor) line instead of one per pair of co-stars. Co-star edges are never
+ * materialized: neighbors & labels are worked out from the shared movies when the Graph methods ask,
+ * and bfsTree() expands through movies, visiting each movie once.
+ *
+ * The graph can't be changed after it's built: the insert & remove methods throw UnsupportedOperationException.
+ *
+ * Actors sharing a name share a vertex, as with insertVertex. When two of them are in the same movie, the
+ * ADJACENCY_MAP build gives that vertex a self-loop; here casts are made distinct first, so the self-loop is
+ * dropped on purpose (nobody is their own co-star) & numEdges() can be one lower per such vertex.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class BipartiteBaconGraph implements Graph<String, Set<String>>, IndexedGraph<String> {
+    private final String[] names;                   // Actor name per vertex ID
+    private final Map<String, Integer> ids;         // Vertex ID per actor name
+    private final int[] actorOffsets;               // Movies of actor u: actorMovies[actorOffsets[u], actorOffsets[u + 1]), sorted
+    private final int[] actorMovies;
+    private final int[] movieOffsets;               // Cast of movie m: movieCast[movieOffsets[m], movieOffsets[m + 1]), sorted
+    private final int[] movieCast;
+    private final String[] movieTitles;
+    private int numEdges = -1;                      // Counted the first time it's asked for
+
+    private BipartiteBaconGraph(String[] names, Map<String, Integer> ids, int[] actorOffsets, int[] actorMovies,
+                                int[] movieOffsets, int[] movieCast, String[] movieTitles) {
+        this.names = names;
+        this.ids = ids;
+        this.actorOffsets = actorOffsets;
+        this.actorMovies = actorMovies;
+        this.movieOffsets = movieOffsets;
+        this.movieCast = movieCast;
+        this.movieTitles = movieTitles;
+    }
+
+    /**
+     * Builds the graph from the maps made by ProcessBaconFiles
+     * @param actors actor ID -> name
+     * @param movies movie ID -> title
+     * @param movieActors movie ID -> actor IDs
+     * @return
+     */
+    public static BipartiteBaconGraph build(Map<String, String> actors, Map<String, String> movies, Map<String, Set<String>> movieActors) {
+        return build(BaconFiles.fromMaps(actors, movies, movieActors));
+    }
+
+    /**
+     * Builds the graph from parsed input files
+     * @param files
+     * @return
+     */
+    public static BipartiteBaconGraph build(BaconFiles files) {
+
+        // vertex IDs by name (actors sharing a name share a vertex, as with insertVertex, but no self-loop)
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        List<String> names = new ArrayList<String>();
+        int[] vertexOfActor = new int[files.numActors()];
+        for (int actor = 0; actor < files.numActors(); actor++) {
+            Integer id = ids.get(files.actorName(actor));
+            if (id == null) {
+                id = names.size();
+                ids.put(files.actorName(actor), id);
+                names.add(files.actorName(actor));
+            }
+            vertexOfActor[actor] = id;
+        }
+        int n = names.size();
+
+        // movie -> cast, as sorted & distinct vertex IDs (unknown actors are skipped)
+        int numMovies = files.numMovies();
+        String[] movieTitles = new String[numMovies];
+        int[][] casts = files.casts(vertexOfActor);
+        int[] movieOffsets = new int[numMovies + 1];
+        int[] moviesPerActor = new int[n];
+        for (int movie = 0; movie < numMovies; movie++) {
+            movieTitles[movie] = files.movieTitle(movie);
+            movieOffsets[movie + 1] = movieOffsets[movie] + casts[movie].length;
+            for (int actor : casts[movie]) moviesPerActor[actor]++;
+        }
+        int castTotal = movieOffsets[numMovies];
+        int[] movieCast = new int[castTotal];
+        for (int movie = 0; movie < numMovies; movie++) {
+            System.arraycopy(casts[movie], 0, movieCast, movieOffsets[movie], casts[movie].length);
+        }
+        casts = null;
+
+        // actor -> movies, by counting sort; movies come out in increasing order
+        int[] actorOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) actorOffsets[u + 1] = actorOffsets[u] + moviesPerActor[u];
+        int[] actorMovies = new int[castTotal];
+        int[] cursor = Arrays.copyOf(actorOffsets, n);
+        for (int movie = 0; movie < numMovies; movie++) {
+            for (int i = movieOffsets[movie]; i < movieOffsets[movie + 1]; i++) {
+                actorMovies[cursor[movieCast[i]]++] = movie;
+            }
+        }
+
+        return new BipartiteBaconGraph(names.toArray(new String[0]), ids, actorOffsets, actorMovies,
+                movieOffsets, movieCast, movieTitles);
+    }
+
+    // int-level access for graph algorithms (arrays are shared, not copied)
+
+    /**
+     * @param name
+     * @return vertex ID, or -1 if there's no such actor
+     */
+    public int vertexId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String vertexName(int id) { return names[id]; }
+
+    public int numMovies() { return movieTitles.length; }
+
+    // Neighbors are movies (groups), each shared by its cast
+
+    public int[] neighborOffsets() { return actorOffsets; }
+
+    public int[] neighbors() { return actorMovies; }
+
+    public int[] groupOffsets() { return movieOffsets; }
+
+    public int[] groupMembers() { return movieCast; }
+
+    /**
+     * Shortest path tree from source in the same form as GraphLib.bfs() (each reached actor has a directed edge
+     * to the actor it was discovered from), found by expanding each actor's movies, each movie only once
+     * @param source
+     * @return
+     */
+    public Graph<String, Set<String>> bfsTree(String source) {
+        return ShortestPathTree.of(this, source).toGraph();
+    }
+
+    /**
+     * Helper method — vertex ID that must exist
+     */
+    private int requireId(String v) {
+        int id = vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("No vertex " + v);
+        return id;
+    }
+
+    /**
+     * Helper method — sorted, distinct co-stars of u (not u itself)
+     */
+    private int[] coStars(int u) {
+        int count = 0;
+        for (int i = actorOffsets[u]; i < actorOffsets[u + 1]; i++) {
+            int movie = actorMovies[i];
+            count += movieOffsets[movie + 1] - movieOffsets[movie];
+        }
+        int[] all = new int[count];
+        count = 0;
+        for (int i = actorOffsets[u]; i < actorOffsets[u + 1]; i++) {
+            int movie = actorMovies[i];
+            for (int j = movieOffsets[movie]; j < movieOffsets[movie + 1]; j++) {
+                if (movieCast[j] != u) all[count++] = movieCast[j];
+            }
+        }
+        Arrays.sort(all, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || all[i] != all[distinct - 1]) all[distinct++] = all[i];
+        }
+        return Arrays.copyOf(all, distinct);
+    }
+
+    /**
+     * Helper method — movies of both u & v, merged from their sorted movie lists
+     */
+    private int[] sharedMovies(int u, int v) {
+        int[] shared = new int[Math.min(actorOffsets[u + 1] - actorOffsets[u], actorOffsets[v + 1] - actorOffsets[v])];
+        int count = 0;
+        int i = actorOffsets[u], j = actorOffsets[v];
+        while (i < actorOffsets[u + 1] && j < actorOffsets[v + 1]) {
+            if (actorMovies[i] < actorMovies[j]) i++;
+            else if (actorMovies[i] > actorMovies[j]) j++;
+            else {
+                shared[count++] = actorMovies[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(shared, count);
+    }
+
+    // Graph methods
+
+    public int numVertices() { return names.length; }
+
+    /**
+     * Directed edges, so each co-star pair counts twice (same as AdjacencyMapGraph with insertUndirected)
+     * Not stored, so the first call walks the whole graph
+     */
+    public synchronized int numEdges() {
+        if (numEdges < 0) {
+            int total = 0;
+            for (int u = 0; u < names.length; u++) total += coStars(u).length;
+            numEdges = total;
+        }
+        return numEdges;
+    }
+
+    public Iterable<String> vertices() { return Collections.unmodifiableList(Arrays.asList(names)); }
+
+    public boolean hasVertex(String v) { return ids.containsKey(v); }
+
+    public int outDegree(String v) { return coStars(requireId(v)).length; }
+
+    public int inDegree(String v) { return outDegree(v); }
+
+    public Iterable<String> outNeighbors(String v) {
+        final int[] coStars = coStars(requireId(v));
+        return new AbstractList<String>() {
+            public String get(int i) { return names[coStars[i]]; }
+            public int size() { return coStars.length; }
+        };
+    }
+
+    public Iterable<String> inNeighbors(String v) { return outNeighbors(v); }
+
+    public boolean hasEdge(String u, String v) {
+        int a = vertexId(u), b = vertexId(v);
+        return a >= 0 && b >= 0 && a != b && sharedMovies(a, b).length > 0;
+    }
+
+    /**
+     * Movies both actors appeared in, as a read-only set
+     *
+     * @return null if the actors never co-starred
+     */
+    public Set<String> getLabel(String u, String v) {
+        int a = vertexId(u), b = vertexId(v);
+        if (a < 0 || b < 0 || a == b) return null;
+        int[] shared = sharedMovies(a, b);
+        if (shared.length == 0) return null;
+        Set<String> titles = new HashSet<String>();
+        for (int movie : shared) titles.add(movieTitles[movie]);
+        return Collections.unmodifiableSet(titles);
+    }
+
+    public void insertVertex(String v) { throw new UnsupportedOperationException("BipartiteBaconGraph is read-only"); }
+
+    public void insertDirected(String u, String v, Set<String> e) { throw new UnsupportedOperationException("BipartiteBaconGraph is read-only"); }
+
+    public void insertUndirected(String u, String v, Set<String> e) { throw new UnsupportedOperationException("BipartiteBaconGraph is read-only"); }
+
+    public void removeVertex(String v) { throw new UnsupportedOperationException("BipartiteBaconGraph is read-only"); }
+
+    public void removeDirected(String u, String v) { throw new UnsupportedOperationException("BipartiteBaconGraph is read-only"); }
+
+    public void removeUndirected(String u, String v) { throw new UnsupportedOperationException("BipartiteBaconGraph is read-only"); }
+}
@@ -13,7 +13,35 @@ import java.util.*;
  **/
 
 public class BuildBaconGraph {
+    /**
+     * Graph representations buildGraph can produce
+     * ADJACENCY_MAP: mutable AdjacencyMapGraph keyed by actor name, with a HashSet of movies per edge
+     * CSR: read-only CSRGraph with int IDs & shared movie indices, a fraction of the memory
+     * BIPARTITE: read-only BipartiteBaconGraph of actor <-> movie lists, no co-star edges at all (fastest to build)
+     */
+    public enum GraphType { ADJACENCY_MAP, CSR, BIPARTITE }
+
     public static Graph<String, Set<String>> buildGraph(String actorsFile, String moviesFile, String movieActorsFile) throws IOException {
+        return buildGraph(actorsFile, moviesFile, movieActorsFile, GraphType.ADJACENCY_MAP);
+    }
+
+    /**
+     * Builds the co-star graph in the given representation
+     * @param actorsFile
+     * @param moviesFile
+     * @param movieActorsFile
+     * @param type
+     * @return
+     */
+    public static Graph<String, Set<String>> buildGraph(String actorsFile, String moviesFile, String movieActorsFile, GraphType type) throws IOException {
+
+        // int-array graphs read the files with the byte-level parser, never making the string maps
+        if (type == GraphType.CSR) {
+            return CSRGraph.build(BaconFiles.parse(actorsFile, moviesFile, movieActorsFile));
+        }
+        if (type == GraphType.BIPARTITE) {
+            return BipartiteBaconGraph.build(BaconFiles.parse(actorsFile, moviesFile, movieActorsFile));
+        }
         Map<String, String> actors = ProcessBaconFiles.buildActorsMap(actorsFile);
         Map<String, String> movies = ProcessBaconFiles.buildMoviesMap(moviesFile);
         Map<String, Set<String>> movieActors = ProcessBaconFiles.buildMovieActorsMap(movieActorsFile);
@@ -0,0 +1,255 @@
+import java.util.*;
+
+/**
+ * purpose: compact read-only co-star graph in compressed sparse row (CSR) form
+ * Actors are int IDs; the neighbors of actor u are targets[offsets[u] .. offsets[u + 1]), sorted by ID.
+ * Each edge's label is a run of indices into one shared array of movie titles, so no per-edge
+ * HashSet<String> or per-vertex map is kept. Names & labels are only turned back into Strings
+ * when the Graph methods ask for them.
+ *
+ * The graph can't be changed after it's built: the insert & remove methods throw UnsupportedOperationException.
+ *
+ * Actors sharing a name share a vertex, as with insertVertex. When two of them are in the same movie, the
+ * ADJACENCY_MAP build gives that vertex a self-loop; here casts are made distinct first, so the self-loop is
+ * dropped on purpose (nobody is their own co-star) & numEdges() can be one lower per such vertex.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class CSRGraph implements Graph<String, Set<String>>, IndexedGraph<String> {
+    private final String[] names;                   // Actor name per vertex ID
+    private final Map<String, Integer> ids;         // Vertex ID per actor name
+    private final int[] offsets;                    // Neighbors of u: targets[offsets[u], offsets[u + 1])
+    private final int[] targets;
+    private final int[] labelOffsets;               // Movies of edge e: labelMovies[labelOffsets[e], labelOffsets[e + 1])
+    private final int[] labelMovies;
+    private final String[] movieTitles;
+
+    private CSRGraph(String[] names, Map<String, Integer> ids, int[] offsets, int[] targets,
+                     int[] labelOffsets, int[] labelMovies, String[] movieTitles) {
+        this.names = names;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.labelOffsets = labelOffsets;
+        this.labelMovies = labelMovies;
+        this.movieTitles = movieTitles;
+    }
+
+    /**
+     * Builds the graph from the maps made by ProcessBaconFiles
+     * @param actors actor ID -> name
+     * @param movies movie ID -> title
+     * @param movieActors movie ID -> actor IDs
+     * @return
+     */
+    public static CSRGraph build(Map<String, String> actors, Map<String, String> movies, Map<String, Set<String>> movieActors) {
+        return build(BaconFiles.fromMaps(actors, movies, movieActors));
+    }
+
+    /**
+     * Builds the graph from parsed input files
+     * Pairs of co-stars are counting-sorted by actor, then each actor's pairs are sorted by co-star
+     * so repeated co-stars collapse into one edge with all their shared movies
+     *
+     * @param files
+     * @return
+     */
+    public static CSRGraph build(BaconFiles files) {
+
+        // vertex IDs by name (actors sharing a name share a vertex, as with insertVertex, but no self-loop)
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        List<String> names = new ArrayList<String>();
+        int[] vertexOfActor = new int[files.numActors()];
+        for (int actor = 0; actor < files.numActors(); actor++) {
+            Integer id = ids.get(files.actorName(actor));
+            if (id == null) {
+                id = names.size();
+                ids.put(files.actorName(actor), id);
+                names.add(files.actorName(actor));
+            }
+            vertexOfActor[actor] = id;
+        }
+        int n = names.size();
+
+        // casts as sorted, distinct vertex IDs (unknown actors are skipped)
+        int m = files.numMovies();
+        String[] movieTitles = new String[m];
+        int[][] casts = files.casts(vertexOfActor);
+        long[] pairCounts = new long[n];
+        for (int movie = 0; movie < m; movie++) {
+            movieTitles[movie] = files.movieTitle(movie);
+            for (int actor : casts[movie]) pairCounts[actor] += casts[movie].length - 1;
+        }
+
+        // counting sort of (co-star, movie) pairs by actor
+        int[] start = new int[n + 1];
+        long total = 0;
+        for (int u = 0; u < n; u++) {
+            start[u] = (int)total;
+            total += pairCounts[u];
+            if (total > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many co-star pairs for one CSR graph");
+        }
+        start[n] = (int)total;
+        long[] pairs = new long[(int)total];
+        int[] cursor = Arrays.copyOf(start, n);
+        for (int movie = 0; movie < m; movie++) {
+            for (int a : casts[movie]) {
+                for (int b : casts[movie]) {
+                    if (a != b) pairs[cursor[a]++] = ((long)b << 32) | movie;
+                }
+            }
+        }
+        casts = null;   // no longer needed, let the pairs take their memory
+
+        // per actor: sort by co-star, then one edge per distinct co-star
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[(int)total];
+        int[] labelOffsets = new int[(int)total + 1];
+        int[] labelMovies = new int[(int)total];
+        int edges = 0;
+        for (int u = 0; u < n; u++) {
+            offsets[u] = edges;
+            Arrays.sort(pairs, start[u], start[u + 1]);
+            for (int i = start[u]; i < start[u + 1]; i++) {
+                int v = (int)(pairs[i] >>> 32);
+                if (i == start[u] || v != targets[edges - 1]) {
+                    targets[edges] = v;
+                    labelOffsets[edges] = i;
+                    edges++;
+                }
+                labelMovies[i] = (int)pairs[i];
+            }
+        }
+        offsets[n] = edges;
+        labelOffsets[edges] = (int)total;
+
+        return new CSRGraph(names.toArray(new String[0]), ids, offsets, Arrays.copyOf(targets, edges),
+                Arrays.copyOf(labelOffsets, edges + 1), labelMovies, movieTitles);
+    }
+
+    /**
+     * Graph over arrays laid out as build() makes them (e.g. loaded back by BaconSnapshot); only the name index is built here
+     */
+    static CSRGraph fromArrays(String[] names, int[] offsets, int[] targets, int[] labelOffsets, int[] labelMovies, String[] movieTitles) {
+        Map<String, Integer> ids = new HashMap<String, Integer>(names.length * 4 / 3 + 1);
+        for (int u = 0; u < names.length; u++) ids.put(names[u], u);
+        return new CSRGraph(names, ids, offsets, targets, labelOffsets, labelMovies, movieTitles);
+    }
+
+    // int-level access for graph algorithms (arrays are shared, not copied)
+
+    /**
+     * @param name
+     * @return vertex ID, or -1 if there's no such actor
+     */
+    public int vertexId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String vertexName(int id) { return names[id]; }
+
+    public int[] neighborOffsets() { return offsets; }
+
+    public int[] neighbors() { return targets; }
+
+    public int[] groupOffsets() { return null; }     // Neighbors are actors
+
+    public int[] groupMembers() { return null; }
+
+    int[] labelOffsets() { return labelOffsets; }
+
+    int[] labelMovies() { return labelMovies; }
+
+    String[] movieTitles() { return movieTitles; }
+
+    /**
+     * Helper method — edge index of u -> v, or -1
+     */
+    private int edgeIndex(int u, int v) {
+        int e = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return e < 0 ? -1 : e;
+    }
+
+    /**
+     * Helper method — vertex ID that must exist
+     */
+    private int requireId(String v) {
+        int id = vertexId(v);
+        if (id < 0) throw new IllegalArgumentException("No vertex " + v);
+        return id;
+    }
+
+    // Graph methods
+
+    public int numVertices() { return names.length; }
+
+    /**
+     * Directed edges, so each co-star pair counts twice (same as AdjacencyMapGraph with insertUndirected)
+     */
+    public int numEdges() { return targets.length; }
+
+    public Iterable<String> vertices() { return Collections.unmodifiableList(Arrays.asList(names)); }
+
+    public boolean hasVertex(String v) { return ids.containsKey(v); }
+
+    public int outDegree(String v) {
+        int u = requireId(v);
+        return offsets[u + 1] - offsets[u];
+    }
+
+    public int inDegree(String v) { return outDegree(v); }
+
+    public Iterable<String> outNeighbors(String v) {
+        final int u = requireId(v);
+        return new AbstractList<String>() {
+            public String get(int i) { return names[targets[offsets[u] + i]]; }
+            public int size() { return offsets[u + 1] - offsets[u]; }
+        };
+    }
+
+    public Iterable<String> inNeighbors(String v) { return outNeighbors(v); }
+
+    public boolean hasEdge(String u, String v) {
+        int a = vertexId(u), b = vertexId(v);
+        return a >= 0 && b >= 0 && edgeIndex(a, b) >= 0;
+    }
+
+    /**
+     * Movies both actors appeared in, as a read-only view
+     *
+     * @return null if the actors never co-starred
+     */
+    public Set<String> getLabel(String u, String v) {
+        int a = vertexId(u), b = vertexId(v);
+        if (a < 0 || b < 0) return null;
+        final int e = edgeIndex(a, b);
+        if (e < 0) return null;
+        return new AbstractSet<String>() {
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int i = labelOffsets[e];
+                    public boolean hasNext() { return i < labelOffsets[e + 1]; }
+                    public String next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return movieTitles[labelMovies[i++]];
+                    }
+                };
+            }
+            public int size() { return labelOffsets[e + 1] - labelOffsets[e]; }
+        };
+    }
+
+    public void insertVertex(String v) { throw new UnsupportedOperationException("CSRGraph is read-only"); }
+
+    public void insertDirected(String u, String v, Set<String> e) { throw new UnsupportedOperationException("CSRGraph is read-only"); }
+
+    public void insertUndirected(String u, String v, Set<String> e) { throw new UnsupportedOperationException("CSRGraph is read-only"); }
+
+    public void removeVertex(String v) { throw new UnsupportedOperationException("CSRGraph is read-only"); }
+
+    public void removeDirected(String u, String v) { throw new UnsupportedOperationException("CSRGraph is read-only"); }
+
+    public void removeUndirected(String u, String v) { throw new UnsupportedOperationException("CSRGraph is read-only"); }
+}
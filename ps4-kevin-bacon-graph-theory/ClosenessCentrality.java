@@ -0,0 +1,511 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * purpose: average separation of every actor from all others, for ranking centers of the universe
+ * Distance sums come straight out of the BFS, with no shortest path tree graph. Sources are run 64 at a time:
+ * bit i of a vertex's word says whether source i has reached it yet, so one pass over the edges advances
+ * all 64 searches by one level (bit-parallel multi-source BFS). Batches of 64 are spread over a fork-join pool.
+ *
+ * Averages match GraphLib.averageSeparation() on a GraphLib.bfs() tree: the sum of distances to every reached
+ * actor, divided by the number of actors reached (counting the source itself).
+ *
+ * approximateCenters() estimates the averages from a random sample of BFS sources instead (using the same
+ * 64-at-a-time BFS), with confidence intervals, & then computes only the candidates for the answer exactly.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class ClosenessCentrality {
+    private final String[] names;
+    private final int n;
+
+    // co-star graph: neighbors of u are targets[offsets[u], offsets[u + 1]) (null for a bipartite graph)
+    private final int[] offsets, targets;
+
+    // bipartite graph: movies of each actor & cast of each movie (null for a co-star graph)
+    private final int[] actorOffsets, actorMovies, movieOffsets, movieCast;
+
+    public static final double CONFIDENCE_Z = 1.96;     // 95% confidence intervals
+
+    private final ForkJoinPool pool;
+    private long[] sums;        // Distance sum per source, filled in by compute()
+    private int[] reached;      // Actors reached per source, including itself
+
+    private ClosenessCentrality(String[] names, int[] offsets, int[] targets,
+                                int[] actorOffsets, int[] actorMovies, int[] movieOffsets, int[] movieCast, ForkJoinPool pool) {
+        this.names = names;
+        this.n = names.length;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.actorOffsets = actorOffsets;
+        this.actorMovies = actorMovies;
+        this.movieOffsets = movieOffsets;
+        this.movieCast = movieCast;
+        this.pool = pool;
+    }
+
+    public static ClosenessCentrality of(Graph<String, ?> g) {
+        return of(g, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Engine over any co-star graph; int-indexed graphs (IndexedGraph) are used as they are, others are copied into int arrays first
+     * @param g
+     * @param pool
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static ClosenessCentrality of(Graph<String, ?> g, ForkJoinPool pool) {
+        if (g instanceof IndexedGraph) {
+            IndexedGraph<String> indexed = (IndexedGraph<String>)g;     // same vertices as g, so Strings
+            String[] names = new String[indexed.numVertices()];
+            for (int u = 0; u < names.length; u++) names[u] = indexed.vertexName(u);
+            if (indexed.groupOffsets() == null) {
+                return new ClosenessCentrality(names, indexed.neighborOffsets(), indexed.neighbors(), null, null, null, null, pool);
+            }
+            return new ClosenessCentrality(names, null, null, indexed.neighborOffsets(), indexed.neighbors(),
+                    indexed.groupOffsets(), indexed.groupMembers(), pool);
+        }
+
+        // any other graph: number the vertices & copy the adjacency
+        List<String> names = new ArrayList<String>();
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        for (String v : g.vertices()) {
+            ids.put(v, names.size());
+            names.add(v);
+        }
+        int[] offsets = new int[names.size() + 1];
+        int[] targets = new int[16];
+        int edges = 0;
+        for (int u = 0; u < names.size(); u++) {
+            offsets[u] = edges;
+            for (String v : g.outNeighbors(names.get(u))) {
+                if (edges == targets.length) targets = Arrays.copyOf(targets, 2 * edges);
+                targets[edges++] = ids.get(v);
+            }
+        }
+        offsets[names.size()] = edges;
+        return new ClosenessCentrality(names.toArray(new String[0]), offsets, targets, null, null, null, null, pool);
+    }
+
+    public int numVertices() { return n; }
+
+    public String vertexName(int id) { return names[id]; }
+
+    /**
+     * Runs BFS from every actor (once; later calls return right away)
+     */
+    public synchronized void compute() {
+        if (sums != null) return;
+        int[] sources = new int[n];
+        for (int u = 0; u < n; u++) sources[u] = u;
+        long[] newSums = new long[n];
+        int[] newReached = new int[n];
+        runBatches(sources, newSums, newReached, null);
+        sums = newSums;
+        reached = newReached;
+    }
+
+    /**
+     * Average separation of one actor (compute() is run first if needed)
+     * @param id
+     * @return 0.0 for an actor with no co-stars, as with averageSeparation()
+     */
+    public double averageSeparation(int id) {
+        compute();
+        return (double)sums[id] / reached[id];
+    }
+
+    /**
+     * Actors reached from one actor, counting itself
+     * @param id
+     * @return
+     */
+    public int reachedCount(int id) {
+        compute();
+        return reached[id];
+    }
+
+    /**
+     * Average separation of every actor, skipping 0.0 ones (actors without co-stars), sorted from most to least central
+     * @return
+     */
+    public List<Map.Entry<String, Double>> sortedAverageSeparations() {
+        compute();
+        List<Map.Entry<String, Double>> centers = new ArrayList<Map.Entry<String, Double>>();
+        for (int u = 0; u < n; u++) {
+            double average = averageSeparation(u);
+            if (average != 0.0) centers.add(new AbstractMap.SimpleImmutableEntry<String, Double>(names[u], average));
+        }
+        centers.sort(Map.Entry.comparingByValue());
+        return centers;
+    }
+
+    /**
+     * Estimated average separation of one actor, with a confidence interval (low = high = average when exact;
+     * 0 to infinity when a single sample gave no variance to go on)
+     */
+    public static class Estimate extends AbstractMap.SimpleImmutableEntry<String, Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final double low, high;
+        private final boolean exact;
+
+        Estimate(String name, double average, double low, double high, boolean exact) {
+            super(name, average);
+            this.low = low;
+            this.high = high;
+            this.exact = exact;
+        }
+
+        public double getLow() { return low; }
+
+        public double getHigh() { return high; }
+
+        public boolean isExact() { return exact; }
+
+        public String toString() {
+            if (exact) return getKey() + "=" + getValue();
+            return String.format("%s=%.4f (%.4f to %.4f)", getKey(), getValue(), low, high);
+        }
+    }
+
+    /**
+     * Approximate topCenters: best (positive number) or worst (negative number) centers, estimated from
+     * BFS runs out of a random sample of actors. Distances are symmetric, so each sampled BFS gives every actor
+     * one sample of its distance to the rest of its component. Actors whose confidence interval could still
+     * put them in the answer are then computed exactly (at most max(64, 4 * |number|) of them).
+     * Actors in components no sample reached are computed exactly with a BFS over just their component.
+     * @param number
+     * @param samples BFS sources to sample
+     * @param seed for the random sample, so runs can be repeated
+     * @return centers sorted like topCenters(), exact ones first among equals
+     */
+    public List<Estimate> approximateCenters(int number, int samples, long seed) {
+        int want = Math.abs(number);
+        if (want == 0 || n == 0) return new ArrayList<Estimate>();
+
+        // distinct random sources (partial Fisher-Yates shuffle)
+        int k = Math.max(1, Math.min(samples, n));
+        int[] order = new int[n];
+        for (int u = 0; u < n; u++) order[u] = u;
+        Random random = new Random(seed);
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(n - i);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        int[] sources = Arrays.copyOf(order, k);
+
+        // per actor: sum, sum of squares & number of sampled distances to it
+        long[] sampleSums = new long[n], sampleSquares = new long[n];
+        int[] sampleCounts = new int[n];
+        runBatches(sources, sampleSums, sampleCounts, sampleSquares);
+
+        int[] componentSize = componentSizes();
+        int[] dist = new int[n], queue = new int[n];
+        Arrays.fill(dist, -1);
+        boolean[] movieSeen = (movieOffsets == null) ? null : new boolean[movieOffsets.length - 1];
+        List<Estimate> estimates = new ArrayList<Estimate>();
+        for (int v = 0; v < n; v++) {
+            int others = componentSize[v] - 1;     // actors v could be sampled against
+            if (others == 0) continue;             // average 0.0, left out like topCenters()
+            int m = sampleCounts[v];
+            if (m == 0) {
+                long sum = distanceSum(v, dist, queue, movieSeen);
+                double average = (double)sum / componentSize[v];
+                estimates.add(new Estimate(names[v], average, average, average, true));
+            } else if (m >= others) {
+                double average = (double)sampleSums[v] / componentSize[v];     // every other actor was a source
+                estimates.add(new Estimate(names[v], average, average, average, true));
+            } else if (m == 1) {
+                // one sample says nothing about the spread, so any average is still possible
+                double scale = (double)others / componentSize[v];
+                estimates.add(new Estimate(names[v], sampleSums[v] * scale, 0, Double.POSITIVE_INFINITY, false));
+            } else {
+                double mean = (double)sampleSums[v] / m;
+                double variance = Math.max(0, (sampleSquares[v] - m * mean * mean) / (m - 1));
+                double correction = Math.sqrt((double)(others - m) / Math.max(1, others - 1));  // finite population
+                double halfWidth = CONFIDENCE_Z * Math.sqrt(variance / m) * correction;
+                double scale = (double)others / componentSize[v];    // the source's own 0 is in the average too
+                estimates.add(new Estimate(names[v], mean * scale, Math.max(0, mean - halfWidth) * scale, (mean + halfWidth) * scale, false));
+            }
+        }
+        Comparator<Estimate> byAverage = Comparator.comparingDouble(Estimate::getValue);
+        if (number < 0) byAverage = byAverage.reversed();
+        estimates.sort(byAverage);
+        if (estimates.isEmpty()) return estimates;
+
+        // candidates: actors whose interval overlaps the answer's worst pessimistic bound
+        double[] bounds = new double[estimates.size()];
+        for (int i = 0; i < bounds.length; i++) bounds[i] = (number > 0) ? estimates.get(i).getHigh() : -estimates.get(i).getLow();
+        Arrays.sort(bounds);
+        double threshold = bounds[Math.min(want, bounds.length) - 1];
+        int limit = Math.max(64, 4 * want);
+        List<Integer> candidates = new ArrayList<Integer>();
+        for (int i = 0; i < estimates.size() && candidates.size() < limit; i++) {
+            Estimate e = estimates.get(i);
+            double optimistic = (number > 0) ? e.getLow() : -e.getHigh();
+            if (!e.isExact() && optimistic <= threshold) candidates.add(i);
+        }
+
+        // exact averages for the candidates, 64 at a time
+        if (!candidates.isEmpty()) {
+            Map<String, Integer> ids = new HashMap<String, Integer>();
+            for (int u = 0; u < n; u++) ids.put(names[u], u);
+            int[] exactSources = new int[candidates.size()];
+            for (int i = 0; i < exactSources.length; i++) exactSources[i] = ids.get(estimates.get(candidates.get(i)).getKey());
+            long[] exactSums = new long[n];
+            int[] exactReached = new int[n];
+            runBatches(exactSources, exactSums, exactReached, null);
+            for (int i = 0; i < exactSources.length; i++) {
+                int u = exactSources[i];
+                double average = (double)exactSums[u] / exactReached[u];
+                estimates.set(candidates.get(i), new Estimate(names[u], average, average, average, true));
+            }
+            estimates.sort(byAverage.thenComparing(e -> !e.isExact()));
+        }
+        return new ArrayList<Estimate>(estimates.subList(0, Math.min(want, estimates.size())));
+    }
+
+    /**
+     * Helper method for approximateCenters — size of each actor's connected component
+     */
+    private int[] componentSizes() {
+        int[] component = new int[n];
+        Arrays.fill(component, -1);
+        int[] queue = new int[n];
+        boolean[] movieSeen = (movieOffsets == null) ? null : new boolean[movieOffsets.length - 1];
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (int s = 0; s < n; s++) {
+            if (component[s] >= 0) continue;
+            int id = sizes.size();
+            int head = 0, tail = 0;
+            queue[tail++] = s;
+            component[s] = id;
+            while (head < tail) {
+                int u = queue[head++];
+                if (movieSeen == null) {
+                    for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                        int v = targets[j];
+                        if (component[v] < 0) {
+                            component[v] = id;
+                            queue[tail++] = v;
+                        }
+                    }
+                } else {
+                    for (int i = actorOffsets[u]; i < actorOffsets[u + 1]; i++) {
+                        int movie = actorMovies[i];
+                        if (movieSeen[movie]) continue;
+                        movieSeen[movie] = true;
+                        for (int j = movieOffsets[movie]; j < movieOffsets[movie + 1]; j++) {
+                            int v = movieCast[j];
+                            if (component[v] < 0) {
+                                component[v] = id;
+                                queue[tail++] = v;
+                            }
+                        }
+                    }
+                }
+            }
+            sizes.add(tail);
+        }
+        int[] size = new int[n];
+        for (int u = 0; u < n; u++) size[u] = sizes.get(component[u]);
+        return size;
+    }
+
+    /**
+     * Helper method for approximateCenters — plain BFS from one actor, only touching its component
+     * @param source
+     * @param dist scratch array, all -1 (left that way)
+     * @param queue scratch array
+     * @param movieSeen scratch array for bipartite graphs, all false (left that way)
+     * @return sum of distances to the actors reached
+     */
+    private long distanceSum(int source, int[] dist, int[] queue, boolean[] movieSeen) {
+        int head = 0, tail = 0;
+        queue[tail++] = source;
+        dist[source] = 0;
+        long sum = 0;
+        while (head < tail) {
+            int u = queue[head++];
+            if (movieSeen == null) {
+                for (int j = offsets[u]; j < offsets[u + 1]; j++) {
+                    int v = targets[j];
+                    if (dist[v] < 0) {
+                        dist[v] = dist[u] + 1;
+                        sum += dist[v];
+                        queue[tail++] = v;
+                    }
+                }
+            } else {
+                for (int i = actorOffsets[u]; i < actorOffsets[u + 1]; i++) {
+                    int movie = actorMovies[i];
+                    if (movieSeen[movie]) continue;
+                    movieSeen[movie] = true;
+                    for (int j = movieOffsets[movie]; j < movieOffsets[movie + 1]; j++) {
+                        int v = movieCast[j];
+                        if (dist[v] < 0) {
+                            dist[v] = dist[u] + 1;
+                            sum += dist[v];
+                            queue[tail++] = v;
+                        }
+                    }
+                }
+            }
+        }
+
+        // clean up only what this search touched
+        for (int i = 0; i < tail; i++) {
+            int u = queue[i];
+            dist[u] = -1;
+            if (movieSeen != null) {
+                for (int j = actorOffsets[u]; j < actorOffsets[u + 1]; j++) movieSeen[actorMovies[j]] = false;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Helper method — runs bfsBatch over all sources, 64 at a time, in the pool
+     * @param sources
+     * @param sums
+     * @param counts
+     * @param squares null: per source sums & reach counts; otherwise per reached actor sums, squares & sample counts
+     */
+    private void runBatches(int[] sources, long[] sums, int[] counts, long[] squares) {
+        int batches = (sources.length + 63) / 64;
+        int grain = Math.max(1, batches / (4 * pool.getParallelism()));
+        pool.invoke(new BatchTask(sources, 0, batches, grain, sums, counts, squares));
+    }
+
+    /**
+     * Runs the BFS for up to 64 sources at once
+     * @param sources
+     * @param from sources[from, from + 64) are run
+     * @param seen bit i set once source i of the batch has reached the vertex
+     * @param frontier bit i set if source i reached the vertex at the last level
+     * @param next
+     * @param movieFrontier per movie, for bipartite graphs
+     * @param sums
+     * @param counts
+     * @param squares see runBatches
+     */
+    private void bfsBatch(int[] sources, int from, long[] seen, long[] frontier, long[] next, long[] movieFrontier,
+                          long[] sums, int[] counts, long[] squares) {
+        int count = Math.min(64, sources.length - from);
+        Arrays.fill(seen, 0);
+        Arrays.fill(frontier, 0);
+        for (int i = 0; i < count; i++) {
+            int source = sources[from + i];
+            seen[source] |= 1L << i;
+            frontier[source] |= 1L << i;
+            if (squares == null) {
+                sums[source] = 0;
+                counts[source] = 1;
+            }
+        }
+        long all = (count == 64) ? -1L : (1L << count) - 1;
+
+        for (int distance = 1; ; distance++) {
+
+            // bipartite: a movie is reached by every source that reached one of its cast
+            if (movieFrontier != null) {
+                int numMovies = movieOffsets.length - 1;
+                for (int m = 0; m < numMovies; m++) {
+                    long bits = 0;
+                    for (int j = movieOffsets[m]; j < movieOffsets[m + 1]; j++) bits |= frontier[movieCast[j]];
+                    movieFrontier[m] = bits;
+                }
+            }
+
+            // each vertex pulls the searches that reached a neighbor at the last level
+            boolean advanced = false;
+            for (int v = 0; v < n; v++) {
+                if (seen[v] == all) {
+                    next[v] = 0;
+                    continue;
+                }
+                long bits = 0;
+                if (movieFrontier == null) {
+                    for (int j = offsets[v]; j < offsets[v + 1]; j++) bits |= frontier[targets[j]];
+                } else {
+                    for (int j = actorOffsets[v]; j < actorOffsets[v + 1]; j++) bits |= movieFrontier[actorMovies[j]];
+                }
+                bits &= ~seen[v];
+                next[v] = bits;
+                if (bits == 0) continue;
+                advanced = true;
+                seen[v] |= bits;
+                if (squares == null) {
+                    for (long rest = bits; rest != 0; rest &= rest - 1) {
+                        int source = sources[from + Long.numberOfTrailingZeros(rest)];
+                        sums[source] += distance;
+                        counts[source]++;
+                    }
+                } else {
+                    int reachedBy = Long.bitCount(bits);
+                    sums[v] += (long)distance * reachedBy;
+                    squares[v] += (long)distance * distance * reachedBy;
+                    counts[v] += reachedBy;
+                }
+            }
+            if (!advanced) return;
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * Splits batches over the pool; each leaf reuses its BFS arrays for all its batches
+     * Per-actor totals (squares != null) are added up in leaf-local arrays & merged at the end
+     */
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] sources;
+        private final int from, to, grain;
+        private final long[] sums, squares;
+        private final int[] counts;
+
+        BatchTask(int[] sources, int from, int to, int grain, long[] sums, int[] counts, long[] squares) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.sums = sums;
+            this.counts = counts;
+            this.squares = squares;
+        }
+
+        protected void compute() {
+            if (to - from > grain) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BatchTask(sources, from, mid, grain, sums, counts, squares),
+                        new BatchTask(sources, mid, to, grain, sums, counts, squares));
+                return;
+            }
+            long[] seen = new long[n], frontier = new long[n], next = new long[n];
+            long[] movieFrontier = (movieOffsets == null) ? null : new long[movieOffsets.length - 1];
+            long[] localSums = (squares == null) ? sums : new long[n];
+            long[] localSquares = (squares == null) ? null : new long[n];
+            int[] localCounts = (squares == null) ? counts : new int[n];
+            for (int batch = from; batch < to; batch++) {
+                bfsBatch(sources, 64 * batch, seen, frontier, next, movieFrontier, localSums, localCounts, localSquares);
+            }
+            if (squares != null) {
+                synchronized (squares) {
+                    for (int v = 0; v < n; v++) {
+                        sums[v] += localSums[v];
+                        squares[v] += localSquares[v];
+                        counts[v] += localCounts[v];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -13,33 +13,81 @@ public class GraphLib {
 
     /**
      * BFS to build shortest path trees for current center of universe
-     * Returns path as directed graph
+     * Returns path as directed graph (built from shortestPathTree(), so callers that only need
+     * distances or paths should use that instead)
      * @param g
      * @param source
      * @return
      */
     public static <V,E> Graph<V,E> bfs(Graph<V,E> g, V source) {
-        Graph<V,E> shortestPathTreeGraph = new AdjacencyMapGraph<>(); // initialize new graph to be created via BFS
-        shortestPathTreeGraph.insertVertex(source); // load the 'source' vertex as root of new graph
-        Set<V> visited = new HashSet<V>(); //Set to track which vertices have already been visited
-        Queue<V> queue = new LinkedList<V>(); //queue to implement BFS
-
-        queue.add(source); // enqueue root vertex
-        visited.add(source); // add root to visited Set
-        while (!queue.isEmpty()) {
-            V current = queue.remove(); // dequeue
-            for (V v : g.outNeighbors(current)) { //loop over out neighbors
-                if (!visited.contains(v)) { //if neighbor not visited, then neighbor is discovered from this vertex
-                    visited.add(v); //add neighbor to visited Set
-                    queue.add(v); //enqueue neighbor
-                    //save that this vertex was discovered from prior vertex through creating of directed edge
-                    shortestPathTreeGraph.insertVertex(current);
-                    shortestPathTreeGraph.insertVertex(v);
-                    shortestPathTreeGraph.insertDirected(v, current, null);
+        return shortestPathTree(g, source).toGraph();
+    }
+
+    /**
+     * BFS from source, kept as distance & parent arrays (see ShortestPathTree)
+     * @param g
+     * @param source
+     * @return
+     */
+    public static <V,E> ShortestPathTree<V> shortestPathTree(Graph<V,E> g, V source) {
+        return ShortestPathTree.of(g, source);
+    }
+
+    /**
+     * Shortest path between two vertices by bidirectional BFS: a search grows from each end, one level at a time
+     * from whichever side has the smaller frontier, until they meet (no full BFS from either end)
+     * Int-indexed graphs (IndexedGraph) are searched over their int arrays (see BidirectionalSearch)
+     * @param g
+     * @param a
+     * @param b
+     * @return path from a to b, both included; empty if there's no path or either vertex is missing
+     */
+    @SuppressWarnings("unchecked")
+    public static <V,E> List<V> shortestPath(Graph<V,E> g, V a, V b) {
+        if (!g.hasVertex(a) || !g.hasVertex(b)) return new ArrayList<V>();
+        if (a.equals(b)) return new ArrayList<V>(Collections.singletonList(a));
+        if (g instanceof IndexedGraph) {
+            IndexedGraph<V> indexed = (IndexedGraph<V>)g;     // same vertices as g, so same V
+            int[] ids = new BidirectionalSearch(indexed).shortestPath(indexed.vertexId(a), indexed.vertexId(b));
+            List<V> path = new ArrayList<V>();
+            for (int id : ids) path.add(indexed.vertexName(id));
+            return path;
+        }
+
+        // one visited map per side: vertex -> the vertex it was discovered from
+        List<Map<V,V>> parents = new ArrayList<Map<V,V>>();
+        List<List<V>> frontiers = new ArrayList<List<V>>();
+        for (V root : Arrays.asList(a, b)) {
+            Map<V,V> parent = new HashMap<V,V>();
+            parent.put(root, null);
+            parents.add(parent);
+            frontiers.add(new ArrayList<V>(Collections.singletonList(root)));
+        }
+        while (!frontiers.get(0).isEmpty() && !frontiers.get(1).isEmpty()) {
+
+            // expand the smaller frontier by one level; the first meeting is a shortest path
+            int side = (frontiers.get(0).size() <= frontiers.get(1).size()) ? 0 : 1;
+            Map<V,V> parent = parents.get(side), otherParent = parents.get(1 - side);
+            List<V> next = new ArrayList<V>();
+            for (V current : frontiers.get(side)) {
+                for (V v : g.outNeighbors(current)) {
+                    if (parent.containsKey(v)) continue;
+                    parent.put(v, current);
+                    if (otherParent.containsKey(v)) {
+
+                        // a ... v from the first side's parents, then v ... b from the second side's
+                        List<V> path = new ArrayList<V>();
+                        for (V x = v; x != null; x = parents.get(0).get(x)) path.add(x);
+                        Collections.reverse(path);
+                        for (V x = parents.get(1).get(v); x != null; x = parents.get(1).get(x)) path.add(x);
+                        return path;
+                    }
+                    next.add(v);
                 }
             }
+            frontiers.set(side, next);
         }
-        return shortestPathTreeGraph;
+        return new ArrayList<V>();
     }
 
     /**
@@ -98,7 +146,7 @@ public class GraphLib {
 
     /**
      * Find the average distance-from-root in a shortest path tree
-     * without enumerating all the paths - with tree recursion
+     * without enumerating all the paths - with a walk down the tree
      * @param tree
      * @param root
      * @return
@@ -111,19 +159,28 @@ public class GraphLib {
 
     /**
      * Helper method for averageSeparation
+     * Walks the tree with an explicit stack rather than recursion, so deep trees can't overflow the call stack
      * @param tree
      * @param root
-     * @param total
+     * @param total separation of root
      * @return
      */
     public static <V, E> double totalSeparation(Graph<V,E> tree, V root, int total) {
+        double num = 0;
+        Deque<V> stack = new ArrayDeque<V>();
+        Deque<Integer> depths = new ArrayDeque<Integer>();
+        stack.push(root);
+        depths.push(total);
+        while (!stack.isEmpty()) {
+            V current = stack.pop();
+            int depth = depths.pop();
+            num += depth;
 
-        // Find the total separation (includes all vertices in graph)
-        int num = total;
-
-        // Base case: key set of the out neighbors is empty
-        for ( V neighbor : tree.inNeighbors(root)) {
-            num += totalSeparation(tree, neighbor, total + 1);
+            // children point at their parent, so they're the in neighbors
+            for (V neighbor : tree.inNeighbors(current)) {
+                stack.push(neighbor);
+                depths.push(depth + 1);
+            }
         }
         return num;
     }
@@ -0,0 +1,43 @@
+/**
+ * purpose: graph whose vertices are numbered 0 .. n-1 & whose adjacency is kept as int arrays in CSR form
+ * Graph algorithms can check for this interface once & then run over the arrays, without going through
+ * vertex objects or outNeighbors().
+ *
+ * The neighbors of u are neighbors()[neighborOffsets()[u] .. neighborOffsets()[u + 1]). Those entries are either
+ * vertex IDs, or, for a graph whose edges come from shared groups (e.g. actors who were in the same movie),
+ * group IDs: then the members of group g are groupMembers()[groupOffsets()[g] .. groupOffsets()[g + 1]) &
+ * u is adjacent to every other member of each of its groups.
+ * Arrays are shared with the graph, not copied, & must not be changed.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public interface IndexedGraph<V> {
+
+    int numVertices();
+
+    /**
+     * @param v
+     * @return vertex ID, or -1 if v isn't in the graph
+     */
+    int vertexId(V v);
+
+    V vertexName(int id);
+
+    int[] neighborOffsets();
+
+    /**
+     * Vertex IDs, or group IDs if groupOffsets() isn't null
+     */
+    int[] neighbors();
+
+    /**
+     * @return group offsets, or null if neighbors() holds vertex IDs
+     */
+    int[] groupOffsets();
+
+    /**
+     * @return group members, or null if neighbors() holds vertex IDs
+     */
+    int[] groupMembers();
+}
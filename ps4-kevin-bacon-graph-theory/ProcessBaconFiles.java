@@ -16,18 +16,22 @@ public class ProcessBaconFiles {
         Map<String, String> actors = new HashMap<String, String>();
 
         // read file line by line
-        String line;
-        while (((line = inputActor.readLine()) != null)) {
+        try {
+            String line;
+            while (((line = inputActor.readLine()) != null)) {
 
-            // pipe separated
-            String[] pieces = line.split("\\|");
+                // pipe separated
+                String[] pieces = splitPipe(line);
 
-            // extract actorID and actorName as string objects
-            String actorID = pieces[0];
-            String actorName = pieces[1];
+                // extract actorID and actorName as string objects
+                String actorID = pieces[0];
+                String actorName = pieces[1];
 
-            // put into map
-            actors.put(actorID, actorName);
+                // put into map
+                actors.put(actorID, actorName);
+            }
+        } finally {
+            inputActor.close();
         }
         return actors;
     }
@@ -37,18 +41,22 @@ public class ProcessBaconFiles {
         Map<String, String> movies = new HashMap<String, String>();
 
         // read file line by line
-        String line;
-        while (((line = inputActor.readLine()) != null)) {
+        try {
+            String line;
+            while (((line = inputActor.readLine()) != null)) {
 
-            // pipe separated
-            String[] pieces = line.split("\\|");
+                // pipe separated
+                String[] pieces = splitPipe(line);
 
-            // extract actorID and actorName as string objects
-            String movieID = pieces[0];
-            String movieName = pieces[1];
+                // extract actorID and actorName as string objects
+                String movieID = pieces[0];
+                String movieName = pieces[1];
 
-            // put into map
-            movies.put(movieID, movieName);
+                // put into map
+                movies.put(movieID, movieName);
+            }
+        } finally {
+            inputActor.close();
         }
         return movies;
     }
@@ -58,23 +66,40 @@ public class ProcessBaconFiles {
         Map<String, Set<String>> moviesToActors = new HashMap<String, Set<String>>();
 
         // read file line by line
-        String line;
-        while (((line = inputActor.readLine()) != null)) {
-
-            // pipe separated
-            String[] pieces = line.split("\\|");
-
-            // extract actorID and actorName as string objects
-            String movieID = pieces[0];
-            String actorID = pieces[1];
-
-            // put into map
-            // if movie already in set, add actorID to set
-            if (moviesToActors.containsKey(movieID)==false) {
-                moviesToActors.put(movieID, new HashSet<>());
+        try {
+            String line;
+            while (((line = inputActor.readLine()) != null)) {
+
+                // pipe separated
+                String[] pieces = splitPipe(line);
+
+                // extract actorID and actorName as string objects
+                String movieID = pieces[0];
+                String actorID = pieces[1];
+
+                // put into map
+                // if movie already in set, add actorID to set
+                if (moviesToActors.containsKey(movieID)==false) {
+                    moviesToActors.put(movieID, new HashSet<>());
+                }
+                moviesToActors.get(movieID).add(actorID);
             }
-            moviesToActors.get(movieID).add(actorID);
+        } finally {
+            inputActor.close();
         }
         return moviesToActors;
     }
+
+    /**
+     * Helper method — first two fields of a pipe separated line, found with indexOf instead of a regex split
+     * Throws ArrayIndexOutOfBoundsException if there's no '|', like reading pieces[1] of a split did
+     * @param line
+     * @return
+     */
+    private static String[] splitPipe(String line) {
+        int bar = line.indexOf('|');
+        if (bar < 0) throw new ArrayIndexOutOfBoundsException("No '|' in line: " + line);
+        int next = line.indexOf('|', bar + 1);
+        return new String[] {line.substring(0, bar), line.substring(bar + 1, (next < 0) ? line.length() : next)};
+    }
 }
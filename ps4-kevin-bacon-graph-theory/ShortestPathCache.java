@@ -0,0 +1,136 @@
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * purpose: LRU cache of BFS results (ShortestPathTree) for one graph, keyed by center
+ * Switching back to a recent center is a map lookup instead of a BFS over the whole graph.
+ * The cache is bounded by memory rather than by count: trees are evicted least recently used first
+ * once their memoryBytes() add up to more than maxBytes (the newest tree is always kept).
+ * Methods are synchronized, so one cache can be shared by several games or sessions. BFS runs outside the lock,
+ * & only once per center: callers asking for a center that's already being computed wait for that BFS
+ * instead of starting their own.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class ShortestPathCache<V> {
+    private final Graph<V, ?> graph;
+    private final long maxBytes;
+    private final LinkedHashMap<V, ShortestPathTree<V>> trees;   // Access order: least recently used first
+    private final Map<V, FutureTask<ShortestPathTree<V>>> inFlight = new HashMap<V, FutureTask<ShortestPathTree<V>>>();
+    private long usedBytes = 0;
+    private long hits = 0, misses = 0, shared = 0, evictions = 0;
+
+    /**
+     * Cache using up to an eighth of the maximum heap
+     * @param graph
+     */
+    public ShortestPathCache(Graph<V, ?> graph) {
+        this(graph, Runtime.getRuntime().maxMemory() / 8);
+    }
+
+    /**
+     * @param graph
+     * @param maxBytes memory the cached trees may take up (roughly, see ShortestPathTree.memoryBytes())
+     */
+    public ShortestPathCache(Graph<V, ?> graph, long maxBytes) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("Cache needs room for at least one tree");
+        this.graph = graph;
+        this.maxBytes = maxBytes;
+        this.trees = new LinkedHashMap<V, ShortestPathTree<V>>(16, 0.75f, true);
+    }
+
+    /**
+     * BFS result for center, from the cache if it's there
+     * @param center
+     * @return
+     * @throws IllegalArgumentException if center isn't in the graph
+     */
+    public ShortestPathTree<V> get(final V center) {
+        FutureTask<ShortestPathTree<V>> task;
+        boolean mine = false;
+        synchronized (this) {
+            ShortestPathTree<V> tree = trees.get(center);
+            if (tree != null) {
+                hits++;
+                return tree;
+            }
+            task = inFlight.get(center);
+            if (task == null) {
+                misses++;
+                task = new FutureTask<ShortestPathTree<V>>(() -> GraphLib.shortestPathTree(graph, center));
+                inFlight.put(center, task);
+                mine = true;
+            } else {
+                shared++;
+            }
+        }
+
+        // BFS without holding the lock, so lookups of other centers aren't held up
+        if (mine) task.run();
+        try {
+            ShortestPathTree<V> tree = task.get();
+            if (mine) put(center, tree);
+            return tree;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for BFS from " + center);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            throw new IllegalStateException("BFS from " + center + " failed", e.getCause());
+        } finally {
+            if (mine) {
+                synchronized (this) {
+                    inFlight.remove(center);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method for get — adds a tree & evicts least recently used ones until it fits
+     */
+    private synchronized void put(V center, ShortestPathTree<V> tree) {
+        ShortestPathTree<V> old = trees.put(center, tree);
+        if (old != null) usedBytes -= old.memoryBytes();
+        usedBytes += tree.memoryBytes();
+
+        Iterator<Map.Entry<V, ShortestPathTree<V>>> eldest = trees.entrySet().iterator();
+        while (usedBytes > maxBytes && trees.size() > 1) {
+            ShortestPathTree<V> evicted = eldest.next().getValue();
+            eldest.remove();
+            usedBytes -= evicted.memoryBytes();
+            evictions++;
+        }
+    }
+
+    public synchronized boolean contains(V center) { return trees.containsKey(center); }
+
+    public synchronized int size() { return trees.size(); }
+
+    public synchronized long usedBytes() { return usedBytes; }
+
+    public long maxBytes() { return maxBytes; }
+
+    public synchronized long hits() { return hits; }
+
+    public synchronized long misses() { return misses; }
+
+    /**
+     * Calls that waited for another caller's BFS of the same center instead of running their own
+     */
+    public synchronized long shared() { return shared; }
+
+    public synchronized long evictions() { return evictions; }
+
+    public synchronized void clear() {
+        trees.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized String toString() {
+        return "ShortestPathCache: " + trees.size() + " trees, " + usedBytes + "/" + maxBytes + " bytes, "
+                + hits + " hits, " + misses + " misses, " + shared + " shared, " + evictions + " evictions";
+    }
+}
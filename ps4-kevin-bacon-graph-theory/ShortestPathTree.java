@@ -0,0 +1,222 @@
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * purpose: result of one BFS as plain arrays instead of a shortest path tree graph
+ * Vertices are numbered 0 .. n-1; dist[u] is u's separation from the source (-1 if unreachable) &
+ * parent[u] the vertex it was discovered from (-1 for the source & unreachable vertices).
+ * Queries just read the arrays: distance & reachability in O(1), paths in O(length),
+ * separation ranges, unreachable sets & the average separation in O(V).
+ * toGraph() gives the same tree graph GraphLib.bfs() always returned, for code that still wants one.
+ *
+ * date: 17 Oct. 2026
+ **/
+
+public class ShortestPathTree<V> {
+    private final V source;
+    private final List<V> names;            // Vertex per index
+    private final ToIntFunction<V> ids;     // Index per vertex, -1 if it isn't in the graph
+    private final int[] dist;
+    private final int[] parent;
+    private final int[] order;              // Reached vertices in the order BFS found them (source first)
+    private final long distanceSum;
+    private final long indexBytes;          // Memory used by names & ids when they belong to this tree alone
+
+    private ShortestPathTree(V source, List<V> names, ToIntFunction<V> ids, int[] dist, int[] parent, int[] order, long indexBytes) {
+        this.source = source;
+        this.names = names;
+        this.ids = ids;
+        this.dist = dist;
+        this.parent = parent;
+        this.order = order;
+        long sum = 0;
+        for (int u : order) sum += dist[u];
+        this.distanceSum = sum;
+        this.indexBytes = indexBytes;
+    }
+
+    /**
+     * BFS from source; int-indexed graphs (IndexedGraph) are searched over their int arrays, others through outNeighbors()
+     * @param g
+     * @param source
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <V, E> ShortestPathTree<V> of(Graph<V, E> g, V source) {
+        if (!g.hasVertex(source)) throw new IllegalArgumentException("No vertex " + source);
+        if (g instanceof IndexedGraph) return indexedTree((IndexedGraph<V>)g, source);     // same vertices as g, so same V
+
+        // number the vertices
+        List<V> names = new ArrayList<V>();
+        Map<V, Integer> ids = new HashMap<V, Integer>();
+        for (V v : g.vertices()) {
+            ids.put(v, names.size());
+            names.add(v);
+        }
+        int n = names.size();
+        int[] dist = new int[n], parent = new int[n], queue = new int[n];
+        Arrays.fill(dist, -1);
+        Arrays.fill(parent, -1);
+
+        int head = 0, tail = 0;
+        int s = ids.get(source);
+        queue[tail++] = s;
+        dist[s] = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            for (V v : g.outNeighbors(names.get(current))) {
+                int u = ids.get(v);
+                if (dist[u] < 0) {   // discovered from current
+                    dist[u] = dist[current] + 1;
+                    parent[u] = current;
+                    queue[tail++] = u;
+                }
+            }
+        }
+        return new ShortestPathTree<V>(source, names, v -> ids.getOrDefault(v, -1), dist, parent, Arrays.copyOf(queue, tail), 64L * n);
+    }
+
+    /**
+     * Helper method — BFS over an int-indexed graph's arrays; through groups (e.g. movies) each group is expanded once
+     */
+    private static <V> ShortestPathTree<V> indexedTree(final IndexedGraph<V> g, V source) {
+        int n = g.numVertices();
+        int[] offsets = g.neighborOffsets(), neighbors = g.neighbors();
+        int[] groupOffsets = g.groupOffsets(), groupMembers = g.groupMembers();
+        int[] dist = new int[n], parent = new int[n], queue = new int[n];
+        boolean[] visitedGroup = (groupOffsets == null) ? null : new boolean[groupOffsets.length - 1];
+        Arrays.fill(dist, -1);
+        Arrays.fill(parent, -1);
+
+        int head = 0, tail = 0;
+        int s = g.vertexId(source);
+        queue[tail++] = s;
+        dist[s] = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            if (groupOffsets == null) {
+                for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                    int u = neighbors[i];
+                    if (dist[u] < 0) {   // discovered from current
+                        dist[u] = dist[current] + 1;
+                        parent[u] = current;
+                        queue[tail++] = u;
+                    }
+                }
+                continue;
+            }
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int group = neighbors[i];
+                if (visitedGroup[group]) continue;
+                visitedGroup[group] = true;
+                for (int j = groupOffsets[group]; j < groupOffsets[group + 1]; j++) {
+                    int u = groupMembers[j];
+                    if (dist[u] < 0) {
+                        dist[u] = dist[current] + 1;
+                        parent[u] = current;
+                        queue[tail++] = u;
+                    }
+                }
+            }
+        }
+
+        // vertex names straight from the graph, without copying them
+        final int count = n;
+        List<V> names = new AbstractList<V>() {
+            public V get(int i) { return g.vertexName(i); }
+            public int size() { return count; }
+        };
+        return new ShortestPathTree<V>(source, names, g::vertexId, dist, parent, Arrays.copyOf(queue, tail), 0);
+    }
+
+    public V getSource() { return source; }
+
+    /**
+     * Vertices reached, counting the source (same as numVertices() of the tree graph)
+     */
+    public int reachedCount() { return order.length; }
+
+    public int numVertices() { return names.size(); }
+
+    /**
+     * Rough heap size of this tree (arrays, plus its own vertex index for graphs that aren't an IndexedGraph)
+     */
+    public long memoryBytes() {
+        return 4L * (dist.length + parent.length + order.length) + indexBytes + 64;
+    }
+
+    public boolean isReachable(V v) {
+        int u = ids.applyAsInt(v);
+        return u >= 0 && dist[u] >= 0;
+    }
+
+    /**
+     * @param v
+     * @return separation from the source, or -1 if v is unreachable (or not in the graph)
+     */
+    public int distance(V v) {
+        int u = ids.applyAsInt(v);
+        return u < 0 ? -1 : dist[u];
+    }
+
+    /**
+     * Path from v back to the source, like GraphLib.getPath(): v itself is left out, the source is last
+     * @param v
+     * @return empty if v is the source or unreachable
+     */
+    public List<V> getPath(V v) {
+        List<V> path = new ArrayList<V>();
+        int u = ids.applyAsInt(v);
+        if (u < 0 || dist[u] < 0) return path;
+        for (u = parent[u]; u >= 0; u = parent[u]) path.add(names.get(u));
+        return path;
+    }
+
+    /**
+     * Average separation of the reached vertices (source included), same as GraphLib.averageSeparation()
+     */
+    public double averageSeparation() {
+        return (double)distanceSum / order.length;
+    }
+
+    /**
+     * Reached vertices with separation in [low, high], sorted by separation
+     * BFS order is already sorted by distance, so this is a single pass
+     * @param low
+     * @param high
+     * @return
+     */
+    public ArrayList<Map.Entry<V, Integer>> verticesBetween(int low, int high) {
+        ArrayList<Map.Entry<V, Integer>> between = new ArrayList<Map.Entry<V, Integer>>();
+        for (int u : order) {
+            if (dist[u] > high) break;
+            if (dist[u] >= low) between.add(new AbstractMap.SimpleImmutableEntry<V, Integer>(names.get(u), dist[u]));
+        }
+        return between;
+    }
+
+    /**
+     * Vertices of the graph with no path to the source
+     */
+    public Set<V> unreachable() {
+        Set<V> missing = new HashSet<V>();
+        for (int u = 0; u < dist.length; u++) {
+            if (dist[u] < 0) missing.add(names.get(u));
+        }
+        return missing;
+    }
+
+    /**
+     * Tree as a graph, exactly as GraphLib.bfs() builds it: each reached vertex has a directed edge
+     * to its parent, inserted in BFS order
+     * @return
+     */
+    public <E> Graph<V, E> toGraph() {
+        Graph<V, E> tree = new AdjacencyMapGraph<V, E>();
+        for (int u : order) {
+            tree.insertVertex(names.get(u));
+            if (parent[u] >= 0) tree.insertDirected(names.get(u), names.get(parent[u]), null);
+        }
+        return tree;
+    }
+}